@@ -0,0 +1,52 @@
+package ppd;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+
+import static ppd.utils.ContestConfig.ACCEPT_COMPRESSION;
+import static ppd.utils.ContestConfig.PORT;
+
+/**
+ * Prints the rankings of a contest as of {@code <seconds ago> [contest id]}.
+ */
+public class AsOfRankingQuery {
+    private static final Logger log = LogManager.getLogger(AsOfRankingQuery.class);
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        var secondsAgo = args.length > 0 ? Double.parseDouble(args[0]) : 0;
+        var contestId = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        var request = Request.builder()
+                .type(RequestType.AS_OF_RANKING)
+                .contest(contestId)
+                .asOfMillis(System.currentTimeMillis() - (long) (secondsAgo * 1000))
+                .acceptCompression(ACCEPT_COMPRESSION)
+                .build();
+
+        try (var socket = new Socket("localhost", PORT);
+             var out = new ObjectOutputStream(socket.getOutputStream());
+             var in = new ObjectInputStream(socket.getInputStream())) {
+            out.writeObject(request);
+            out.flush();
+            var response = (Response) in.readObject();
+
+            if (response.getType() != ResponseType.SUCCESS) {
+                log.error("Error receiving rankings as of {}: {}", request.getAsOfMillis(), response.getMessage());
+                return;
+            }
+            log.info("Rankings as of {}, from the snapshot of {}", request.getAsOfMillis(), response.getAsOfMillis());
+            System.out.println("Country ranking:");
+            response.getCountryRanking().forEach(System.out::println);
+            System.out.println("Participant ranking:");
+            response.getParticipantRanking().forEach(System.out::println);
+        }
+    }
+}
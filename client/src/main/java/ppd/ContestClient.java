@@ -5,18 +5,31 @@ import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 import static ppd.utils.ContestConfig.COUNTRIES;
+import static ppd.utils.ContestConfig.INGESTION_THREADS;
 
+/**
+ * Runs every country of a contest. Usage: {@code ContestClient [--contest <id>]}, other arguments are ignored.
+ */
 public class ContestClient {
     private static final Logger log = LogManager.getLogger(ContestClient.class);
 
     public static void main(String[] args) {
+        var contestId = 0;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--contest")) {
+                contestId = Integer.parseInt(args[i + 1]);
+            }
+        }
+        // shared by the countries, every result file is read by its own task
+        var ingestionExecutor = Executors.newFixedThreadPool(INGESTION_THREADS);
         List<Thread> threads = new ArrayList<>();
         for (int id = 1; id <= COUNTRIES; id++) {
-            Thread handler = new Thread(new CountryHandler(id));
+            Thread handler = new Thread(new CountryHandler(id, contestId, ingestionExecutor));
             threads.add(handler);
-            log.info("Starting handler for country {}", id);
+            log.info("Starting handler for country {} of contest {}", id, contestId);
             handler.start();
         }
 
@@ -27,5 +40,6 @@ public class ContestClient {
                 log.error(e);
             }
         }
+        ingestionExecutor.shutdown();
     }
 }
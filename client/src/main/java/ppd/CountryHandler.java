@@ -6,6 +6,8 @@ import org.apache.logging.log4j.Logger;
 import ppd.request.Request;
 import ppd.request.RequestType;
 import ppd.request.ScoreSubmission;
+import ppd.request.SubmissionStream;
+import ppd.response.RankingStream;
 import ppd.response.Response;
 import ppd.response.ResponseType;
 import ppd.utils.CountryMapper;
@@ -18,8 +20,12 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import static ppd.utils.ContestConfig.*;
@@ -27,11 +33,24 @@ import static ppd.utils.ContestConfig.*;
 public class CountryHandler implements Runnable {
     private final List<String> fileNames = new ArrayList<>();
     private final int countryId;
+    private final int contestId;
+    private final ExecutorService ingestionExecutor;
+    // records the server last allowed this country to send, only read and written by the sending thread
+    private int credits = Integer.MAX_VALUE;
+    // a batch split to fit the credits takes one sequence per part, only used by the sending thread
+    private long nextSequence = 0;
+    // batches scheduled but not sent yet, the chunks queue up behind them once it runs out
+    private final Semaphore scheduledSends = new Semaphore(MAX_SCHEDULED_SENDS);
+
+    // marks the end of one file in the chunk queue, compared by identity
+    private static final List<ScoreSubmission> END_OF_FILE = List.of();
 
     private static final Logger log = LogManager.getLogger(CountryHandler.class);
 
-    public CountryHandler(int countryId) {
+    public CountryHandler(int countryId, int contestId, ExecutorService ingestionExecutor) {
         this.countryId = countryId;
+        this.contestId = contestId;
+        this.ingestionExecutor = ingestionExecutor;
     }
 
     @SneakyThrows
@@ -45,36 +64,32 @@ public class CountryHandler implements Runnable {
 
         initializeFileNames(countryId);
         log.info("Files to be read: {}", fileNames);
-        var buffer = new ArrayList<ScoreSubmission>();
         ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        var chunks = new ArrayBlockingQueue<List<ScoreSubmission>>(INGESTION_QUEUE_CAPACITY);
 
         var startTime = System.nanoTime();
         int taskIndex = 0;
 
-        try {
-            for (var fileName : fileNames) {
-                try (var scanner = new Scanner(new FileReader(fileName))) {
-                    while (scanner.hasNextLine()) {
-                        var line = scanner.nextLine();
-                        var tokens = line.split(",");
-                        var id = Integer.parseInt(tokens[0]);
-                        var points = Integer.parseInt(tokens[1]);
-
-                        buffer.add(new ScoreSubmission(id, points));
-                        if (buffer.size() == CHUNK_SIZE) {
-                            var submissions = new ArrayList<>(buffer);
-                            sendScheduledRequest(scheduler, countryId, submissions, taskIndex++);
-                            buffer.clear();
-                        }
-                    }
+        Thread subscriber = null;
+        if (SUBSCRIBE_RANKINGS) {
+            subscriber = new Thread(new RankingSubscriber(countryId, contestId));
+            subscriber.start();
+        }
 
-                    if (!buffer.isEmpty()) {
-                        var submissions = new ArrayList<>(buffer);
-                        sendScheduledRequest(scheduler, countryId, submissions, taskIndex++);
-                        buffer.clear();
-                    }
-                } catch (IOException e) {
-                    log.error("Error reading file: {}", fileName);
+        // the files are independent, they are read in parallel and their chunks sent in the order they are produced
+        for (var fileName : fileNames) {
+            ingestionExecutor.submit(() -> readChunks(fileName, chunks));
+        }
+
+        try {
+            var filesLeft = fileNames.size();
+            while (filesLeft > 0) {
+                var submissions = chunks.take();
+                if (submissions == END_OF_FILE) {
+                    filesLeft--;
+                } else {
+                    scheduledSends.acquire();
+                    sendScheduledRequest(scheduler, countryId, submissions, taskIndex++, startTime);
                 }
             }
         } finally {
@@ -93,10 +108,15 @@ public class CountryHandler implements Runnable {
         var partialRankingRequest = Request.builder()
                 .type(RequestType.PARTIAL_COUNTRY_RANKING)
                 .country(countryId)
+                .contest(contestId)
+                .acceptCompression(ACCEPT_COMPRESSION)
                 .build();
-        log.info("Sending partial ranking request to server: {}", partialRankingRequest);
-        var partialRankingResponse = sendRequest(partialRankingRequest);
-        log.info("Received country partial ranking response from server: {}", partialRankingResponse);
+        // with read replicas, the countries spread their ranking reads over them; only the first contest is replicated
+        var partialRankingPort = REPLICAS > 0 && contestId == 0 ? REPLICA_BASE_PORT + Math.floorMod(countryId, REPLICAS) : PORT;
+        log.info("Sending partial ranking request to port {}: {}", partialRankingPort, partialRankingRequest);
+        var partialRankingResponse = sendRequest(partialRankingRequest, partialRankingPort, 0);
+        log.info("Received country partial ranking response, {} ms stale: {}",
+                partialRankingResponse.getStalenessMillis(), partialRankingResponse);
 
         if (partialRankingResponse.getType() == ResponseType.SUCCESS) {
             System.out.println("Partial ranking received from server:");
@@ -108,16 +128,15 @@ public class CountryHandler implements Runnable {
         var finalRankingRequest = Request.builder()
                 .type(RequestType.FINAL_PARTICIPANT_RANKING)
                 .country(countryId)
+                .contest(contestId)
+                .acceptCompression(ACCEPT_COMPRESSION)
+                .streamRanking(STREAM_FINAL_RANKING)
                 .build();
         log.info("Sending final ranking request to server: {}", finalRankingRequest);
-        var finalRankingResponse = sendRequest(finalRankingRequest);
-        log.info("Received final ranking response from server: {}", finalRankingResponse);
+        receiveFinalRanking(finalRankingRequest);
 
-        if (finalRankingResponse.getType() == ResponseType.SUCCESS) {
-            System.out.println("Final ranking received from server:");
-            finalRankingResponse.getParticipantRanking().forEach(System.out::println);
-        } else {
-            log.error("Error receiving final ranking from server: {}", finalRankingResponse.getMessage());
+        if (subscriber != null) {
+            subscriber.join();
         }
 
         var endTime = System.nanoTime();
@@ -133,11 +152,54 @@ public class CountryHandler implements Runnable {
         }
     }
 
+    /**
+     * Splits the file into chunks of {@code CHUNK_SIZE} submissions, then signals its end, even if it could not be read.
+     */
+    private void readChunks(String fileName, BlockingQueue<List<ScoreSubmission>> chunks) {
+        try {
+            var buffer = new ArrayList<ScoreSubmission>(CHUNK_SIZE);
+            try (var scanner = new Scanner(new FileReader(fileName))) {
+                while (scanner.hasNextLine()) {
+                    var line = scanner.nextLine();
+                    var tokens = line.split(",");
+                    var id = Integer.parseInt(tokens[0]);
+                    var points = Integer.parseInt(tokens[1]);
+
+                    buffer.add(new ScoreSubmission(id, points));
+                    if (buffer.size() == CHUNK_SIZE) {
+                        chunks.put(buffer);
+                        buffer = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+
+                if (!buffer.isEmpty()) {
+                    chunks.put(buffer);
+                }
+            } catch (IOException e) {
+                log.error("Error reading file: {}", fileName);
+            } finally {
+                chunks.put(END_OF_FILE);
+            }
+        } catch (InterruptedException e) {
+            log.error("Reading file {} interrupted", fileName);
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private Response sendRequest(Request request) throws IOException, ClassNotFoundException {
-        try (var socket = new Socket("localhost", PORT);
+        return sendRequest(request, 0);
+    }
+
+    private Response sendRequest(Request request, int timeoutMillis) throws IOException, ClassNotFoundException {
+        return sendRequest(request, PORT, timeoutMillis);
+    }
+
+    private Response sendRequest(Request request, int port, int timeoutMillis) throws IOException, ClassNotFoundException {
+        try (var socket = new Socket("localhost", port);
              var out = new ObjectOutputStream((socket.getOutputStream()));
              var in = new ObjectInputStream(socket.getInputStream())) {
 
+            socket.setSoTimeout(timeoutMillis);
             out.writeObject(request);
             out.flush();
 
@@ -145,6 +207,55 @@ public class CountryHandler implements Runnable {
         }
     }
 
+    private Response sendStreamedRequest(Request header, List<ScoreSubmission> submissions, int timeoutMillis)
+            throws IOException, ClassNotFoundException {
+        try (var socket = new Socket("localhost", PORT);
+             var out = new ObjectOutputStream((socket.getOutputStream()));
+             var in = new ObjectInputStream(socket.getInputStream())) {
+
+            socket.setSoTimeout(timeoutMillis);
+            out.writeObject(header);
+            var resumeFrom = 0;
+            if (header.isResumeStream()) {
+                out.flush();
+                var response = (Response) in.readObject();
+                if (response.getType() != ResponseType.CONTINUE) {
+                    return response;
+                }
+                resumeFrom = response.getResumeFrom();
+            }
+            SubmissionStream.write(out, submissions.subList(resumeFrom, submissions.size()));
+            out.flush();
+
+            return (Response) in.readObject();
+        }
+    }
+
+    private void receiveFinalRanking(Request request) throws IOException, ClassNotFoundException {
+        try (var socket = new Socket("localhost", PORT);
+             var out = new ObjectOutputStream((socket.getOutputStream()));
+             var in = new ObjectInputStream(socket.getInputStream())) {
+
+            out.writeObject(request);
+            out.flush();
+
+            var response = (Response) in.readObject();
+            log.info("Received final ranking response from server: {}", response);
+            if (response.getType() != ResponseType.SUCCESS) {
+                log.error("Error receiving final ranking from server: {}", response.getMessage());
+                return;
+            }
+
+            System.out.println("Final ranking received from server:");
+            if (response.isStreamed()) {
+                var participants = RankingStream.read(in, System.out::println);
+                log.info("Final ranking of {} participants streamed from server", participants);
+            } else {
+                response.getParticipantRanking().forEach(System.out::println);
+            }
+        }
+    }
+
     private Response sendRequestWithPolling(Request request) throws IOException, InterruptedException, ClassNotFoundException {
         int retries = 0;
         Response response;
@@ -160,22 +271,90 @@ public class CountryHandler implements Runnable {
         return response;
     }
 
-    private void sendScheduledRequest(ScheduledExecutorService scheduler, int countryId, List<ScoreSubmission> submissions, int taskIndex) {
-        var delay = taskIndex * DELTA_X;
+    private void sendScheduledRequest(ScheduledExecutorService scheduler, int countryId, List<ScoreSubmission> submissions,
+                                      int taskIndex, long startTime) {
+        // the batches keep their slots from the start even when the chunks were held back
+        var delay = Math.max(0, TimeUnit.SECONDS.toNanos(taskIndex * DELTA_X) - (System.nanoTime() - startTime));
         scheduler.schedule(() -> {
             try {
-                var request = Request.builder()
-                        .type(RequestType.SCORE_SUBMISSION)
-                        .country(countryId)
-                        .submissions(submissions)
-                        .build();
+                var sent = 0;
+                while (sent < submissions.size()) {
+                    if (credits == 0) {
+                        // the server backlog is full, give its writers some time before sending more
+                        Thread.sleep(THROTTLE_RETRY_MILLIS);
+                    }
+                    var remaining = submissions.size() - sent;
+                    var size = credits > 0 ? Math.min(credits, remaining) : remaining;
+                    var part = size == submissions.size()
+                            ? submissions
+                            : new ArrayList<>(submissions.subList(sent, sent + size));
+                    if (!sendSubmissions(countryId, part, nextSequence++)) {
+                        log.error("Giving up on score submissions {} of client {}", taskIndex, countryId);
+                        return;
+                    }
+                    sent += size;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                scheduledSends.release();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
 
+    /**
+     * Sends one part of a batch until the server accepts it, returns false once the retries are exhausted.
+     */
+    private boolean sendSubmissions(int countryId, List<ScoreSubmission> submissions, long sequence) throws InterruptedException {
+        // the sequence identifies the part, the server ignores it if a previous attempt already got through
+        var request = STREAM_SUBMISSIONS
+                ? Request.builder()
+                .type(RequestType.SCORE_SUBMISSION_STREAM)
+                .country(countryId)
+                .contest(contestId)
+                .sequence(sequence)
+                .streamedSubmissions(submissions.size())
+                .build()
+                : Request.builder()
+                .type(RequestType.SCORE_SUBMISSION)
+                .country(countryId)
+                .contest(contestId)
+                .sequence(sequence)
+                .submissions(submissions)
+                .build();
+
+        int attempt = 1;
+        while (attempt <= MAX_RETRIES) {
+            try {
                 log.info("Sending request to server: {}", request);
-                var response = sendRequest(request);
+                var response = STREAM_SUBMISSIONS
+                        ? sendStreamedRequest(request, submissions, 1000 * SUBMISSION_TIMEOUT)
+                        : sendRequest(request, 1000 * SUBMISSION_TIMEOUT);
                 log.info("Received score submission response from server: {}", response);
+                if (response.getType() == ResponseType.SUCCESS) {
+                    credits = response.getCredits();
+                    return true;
+                }
+                if (response.getType() == ResponseType.THROTTLED) {
+                    // not a failure, the part is resent until the server has room for it
+                    credits = 0;
+                    Thread.sleep(response.getRetryAfterMillis());
+                    continue;
+                }
+                // resent with the same sequence, the server drops it if it was applied after all
+                log.error("Score submissions {} rejected by server (attempt {}/{}): {}",
+                        sequence, attempt, MAX_RETRIES, response.getMessage());
+                request.setResumeStream(STREAM_SUBMISSIONS);
+                attempt++;
+                Thread.sleep(THROTTLE_RETRY_MILLIS);
             } catch (IOException | ClassNotFoundException e) {
-                log.error("Error sending request to server: {}", e.getMessage());
+                log.error("Error sending request {} to server (attempt {}/{}): {}",
+                        sequence, attempt, MAX_RETRIES, e.getMessage());
+                // part of the stream may have been enqueued, the retry asks where to resume
+                request.setResumeStream(STREAM_SUBMISSIONS);
+                attempt++;
             }
-        }, delay, TimeUnit.SECONDS);
+        }
+        return false;
     }
 }
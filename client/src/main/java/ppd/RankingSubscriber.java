@@ -0,0 +1,74 @@
+package ppd;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+import ppd.utils.CountryMapper;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+
+import static ppd.utils.ContestConfig.ACCEPT_COMPRESSION;
+import static ppd.utils.ContestConfig.PORT;
+
+/**
+ * Keeps a subscription connection open and receives the country ranking updates pushed by the server,
+ * instead of polling with a new connection for every request. Ends once the final participant ranking is pushed.
+ */
+public class RankingSubscriber implements Runnable {
+    private final int countryId;
+    private final int contestId;
+
+    private static final Logger log = LogManager.getLogger(RankingSubscriber.class);
+
+    public RankingSubscriber(int countryId, int contestId) {
+        this.countryId = countryId;
+        this.contestId = contestId;
+    }
+
+    @Override
+    public void run() {
+        var countryName = CountryMapper.getCountryName(countryId);
+        var request = Request.builder()
+                .type(RequestType.SUBSCRIBE_COUNTRY_RANKING)
+                .country(countryId)
+                .contest(contestId)
+                .acceptCompression(ACCEPT_COMPRESSION)
+                .build();
+
+        try (var socket = new Socket("localhost", PORT);
+             var out = new ObjectOutputStream(socket.getOutputStream());
+             var in = new ObjectInputStream(socket.getInputStream())) {
+
+            out.writeObject(request);
+            out.flush();
+
+            var updates = 0;
+            while (true) {
+                var response = (Response) in.readObject();
+                if (response.getType() != ResponseType.SUCCESS) {
+                    log.error("Ranking subscription of {} failed: {}", countryName, response.getMessage());
+                    break;
+                }
+
+                if (response.getParticipantRanking() != null) {
+                    log.info("Client {} received final ranking push with {} participants after {} updates",
+                            countryName, response.getParticipantRanking().size(), updates);
+                    break;
+                }
+                updates++;
+                log.info("Client {} received country ranking update: {}", countryName, response.getCountryRanking());
+            }
+        } catch (EOFException e) {
+            log.info("Ranking subscription of {} closed by the server", countryName);
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("Error in ranking subscription of {}: {}", countryName, e.getMessage());
+        }
+    }
+}
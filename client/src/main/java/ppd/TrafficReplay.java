@@ -0,0 +1,177 @@
+package ppd;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.request.SubmissionStream;
+import ppd.response.RankingStream;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+import ppd.trace.TraceReader;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ppd.utils.ContestConfig.PORT;
+import static ppd.utils.ContestConfig.TRAFFIC_TRACE_PATH;
+
+/**
+ * Replays a traffic trace recorded by the server against a running server, keeping the recorded arrival times scaled
+ * by a speed factor ({@code 1} for real time, {@code N} for N times faster, {@code max} for no waiting at all),
+ * then reports the throughput and the latency of each request type.
+ * Usage: {@code TrafficReplay [trace path] [speed]}.
+ */
+public class TrafficReplay {
+    private static final Logger log = LogManager.getLogger(TrafficReplay.class);
+
+    private final Map<RequestType, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final LongAdder submissions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var tracePath = args.length > 0 ? args[0] : TRAFFIC_TRACE_PATH;
+        var speed = args.length > 1 && !args[1].equals("max") ? Double.parseDouble(args[1]) : Double.POSITIVE_INFINITY;
+        new TrafficReplay().replay(tracePath, speed);
+    }
+
+    private void replay(String tracePath, double speed) throws IOException, InterruptedException {
+        // final ranking requests wait for every country, the senders cannot be bounded by the number of requests
+        var senders = Executors.newCachedThreadPool();
+        var pendingSubmissions = new HashMap<List<Integer>, List<CompletableFuture<Void>>>();
+        var sent = new ArrayList<CompletableFuture<Void>>();
+        var requests = 0;
+
+        log.info("Replaying {} at {} speed", tracePath, Double.isInfinite(speed) ? "maximum" : speed + "x");
+        var startNanos = System.nanoTime();
+        try (var reader = new TraceReader(tracePath)) {
+            for (var record = reader.next(); record != null; record = reader.next()) {
+                var request = record.request();
+                if (request.getType() == RequestType.SUBSCRIBE_COUNTRY_RANKING) {
+                    // subscriptions stay open until the end of the contest, they only add load on the publisher
+                    continue;
+                }
+                if (!Double.isInfinite(speed)) {
+                    var dueNanos = startNanos + (long) (record.offsetNanos() / speed);
+                    var waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+                // the countries of different contests are different clients
+                var countrySubmissions = pendingSubmissions.computeIfAbsent(
+                        List.of(request.getContest(), request.getCountry()), country -> new ArrayList<>());
+                if (request.getType() == RequestType.SCORE_SUBMISSION
+                        || request.getType() == RequestType.SCORE_SUBMISSION_STREAM) {
+                    var submission = CompletableFuture.runAsync(() -> send(request), senders);
+                    countrySubmissions.add(submission);
+                    sent.add(submission);
+                } else {
+                    // like the client, a country asks for rankings only once all its submissions were acknowledged,
+                    // and its later requests wait for this one, the final ranking comes after the partial ranking
+                    var ranking = CompletableFuture.allOf(countrySubmissions.toArray(CompletableFuture[]::new))
+                            .thenRunAsync(() -> send(request), senders);
+                    sent.add(ranking);
+                    countrySubmissions.clear();
+                    countrySubmissions.add(ranking);
+                }
+                requests++;
+            }
+        }
+
+        CompletableFuture.allOf(sent.toArray(CompletableFuture[]::new)).join();
+        senders.shutdown();
+        var elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        report(requests, elapsedSeconds);
+    }
+
+    private void send(Request request) {
+        var start = System.nanoTime();
+        try {
+            var response = exchange(request);
+            // throttled submissions are resent like the client does, the latency includes the back-off
+            while (response.getType() == ResponseType.THROTTLED) {
+                throttled.increment();
+                Thread.sleep(response.getRetryAfterMillis());
+                response = exchange(request);
+            }
+            if (response.getType() != ResponseType.SUCCESS) {
+                errors.increment();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("Error replaying {} request: {}", request.getType(), e.getMessage());
+            errors.increment();
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        latencies.computeIfAbsent(request.getType(), type -> Collections.synchronizedList(new ArrayList<>()))
+                .add(System.nanoTime() - start);
+        if (request.getSubmissions() != null) {
+            submissions.add(request.getSubmissions().size());
+        }
+    }
+
+    private Response exchange(Request request) throws IOException, ClassNotFoundException {
+        try (var socket = new Socket("localhost", PORT);
+             var out = new ObjectOutputStream(socket.getOutputStream());
+             var in = new ObjectInputStream(socket.getInputStream())) {
+
+            if (request.getType() == RequestType.SCORE_SUBMISSION_STREAM) {
+                // recorded with its body, sent back as a header followed by the streamed records
+                var header = Request.builder()
+                        .type(request.getType())
+                        .country(request.getCountry())
+                        .contest(request.getContest())
+                        .sequence(request.getSequence())
+                        .streamedSubmissions(request.getSubmissionCount())
+                        .build();
+                out.writeObject(header);
+                SubmissionStream.write(out, request.getSubmissions());
+            } else {
+                out.writeObject(request);
+            }
+            out.flush();
+            var response = (Response) in.readObject();
+            if (response.isStreamed()) {
+                // part of the exchange, the latency includes reading the whole ranking
+                RankingStream.read(in, participant -> {
+                });
+            }
+            return response;
+        }
+    }
+
+    private void report(int requests, double elapsedSeconds) {
+        log.info("Replayed {} requests in {} s: {} requests/s, {} submissions/s, {} throttled, {} errors",
+                requests, String.format("%.3f", elapsedSeconds), String.format("%.1f", requests / elapsedSeconds),
+                String.format("%.1f", submissions.sum() / elapsedSeconds), throttled.sum(), errors.sum());
+
+        for (var type : RequestType.values()) {
+            var samples = latencies.get(type);
+            if (samples == null || samples.isEmpty()) {
+                continue;
+            }
+            var sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            var average = Arrays.stream(sorted).average().orElse(0);
+            log.info("{}: count={}, avg={}ms, p50={}ms, p99={}ms, max={}ms", type, sorted.length,
+                    String.format("%.3f", average / 1e6),
+                    String.format("%.3f", percentile(sorted, 0.50) / 1e6),
+                    String.format("%.3f", percentile(sorted, 0.99) / 1e6),
+                    String.format("%.3f", sorted[sorted.length - 1] / 1e6));
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        var index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
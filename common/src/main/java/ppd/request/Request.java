@@ -12,15 +12,38 @@ import java.util.List;
 @AllArgsConstructor
 public class Request implements Serializable {
     private RequestType type;
+    // contest hosted by the server the request belongs to, see ContestConfig.CONTESTS
+    private int contest;
     private List<ScoreSubmission> submissions;
+    // number of records following the header of a streamed submission, see SubmissionStream
+    private int streamedSubmissions;
+    // retry of a streamed submission: the server answers with the records to skip before the body is sent
+    private boolean resumeStream;
     private int country;
+    private Long sequence;
+    private boolean acceptCompression;
+    // final ranking sent as a RankingStream after the response instead of inside it
+    private boolean streamRanking;
+    // epoch millis the rankings of an AS_OF_RANKING request are asked for
+    private long asOfMillis;
 
+    public int getSubmissionCount() {
+        return submissions == null ? streamedSubmissions : submissions.size();
+    }
+
+    // logged on the hot path, the submissions are counted, not printed
     @Override
     public String toString() {
         return "Request{" +
                 "type=" + type +
-                ", submissions=" + submissions +
+                ", contest=" + contest +
+                ", submissions=" + getSubmissionCount() +
+                ", resumeStream=" + resumeStream +
                 ", country=" + country +
+                ", sequence=" + sequence +
+                ", acceptCompression=" + acceptCompression +
+                ", streamRanking=" + streamRanking +
+                ", asOfMillis=" + asOfMillis +
                 '}';
     }
 }
@@ -1,7 +1,33 @@
 package ppd.request;
 
+/**
+ * Request types, each with a stable code written to traffic traces instead of its ordinal.
+ */
 public enum RequestType {
-    SCORE_SUBMISSION,
-    PARTIAL_COUNTRY_RANKING,
-    FINAL_PARTICIPANT_RANKING
+    SCORE_SUBMISSION(0),
+    PARTIAL_COUNTRY_RANKING(1),
+    FINAL_PARTICIPANT_RANKING(2),
+    SUBSCRIBE_COUNTRY_RANKING(3),
+    SCORE_SUBMISSION_STREAM(4),
+    REPLICATION_STREAM(5),
+    AS_OF_RANKING(6);
+
+    private final int code;
+
+    RequestType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static RequestType fromCode(int code) {
+        for (var type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown request type code: " + code);
+    }
 }
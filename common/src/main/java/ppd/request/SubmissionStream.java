@@ -0,0 +1,37 @@
+package ppd.request;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of a {@link RequestType#SCORE_SUBMISSION_STREAM} request, (id, score) int pairs following the request header.
+ */
+public class SubmissionStream {
+    private SubmissionStream() {
+    }
+
+    public static void write(ObjectOutputStream out, List<ScoreSubmission> submissions) throws IOException {
+        for (var submission : submissions) {
+            out.writeInt(submission.id());
+            out.writeInt(submission.score());
+        }
+    }
+
+    public static List<ScoreSubmission> readAll(ObjectInputStream in, int count) throws IOException {
+        var submissions = new ArrayList<ScoreSubmission>(count);
+        for (int i = 0; i < count; i++) {
+            submissions.add(new ScoreSubmission(in.readInt(), in.readInt()));
+        }
+        return submissions;
+    }
+
+    public static void skip(ObjectInputStream in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            in.readInt();
+            in.readInt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ppd.response;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Body of a streamed final ranking following its {@link Response}, blocks of (id, score, country) ints preceded by
+ * their length, the last one empty.
+ */
+public class RankingStream {
+    public static final int BLOCK_SIZE = 1024;
+
+    private final ObjectOutputStream out;
+    private final int[] block = new int[3 * BLOCK_SIZE];
+    private int size = 0;
+
+    public RankingStream(ObjectOutputStream out) {
+        this.out = out;
+    }
+
+    public void write(int id, int score, int country) throws IOException {
+        block[3 * size] = id;
+        block[3 * size + 1] = score;
+        block[3 * size + 2] = country;
+        if (++size == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    public void finish() throws IOException {
+        if (size > 0) {
+            writeBlock();
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    private void writeBlock() throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < 3 * size; i++) {
+            out.writeInt(block[i]);
+        }
+        size = 0;
+    }
+
+    // returns the number of entries read
+    public static long read(ObjectInputStream in, Consumer<ParticipantScore> consumer) throws IOException {
+        long entries = 0;
+        for (var size = in.readInt(); size > 0; size = in.readInt()) {
+            for (int i = 0; i < size; i++) {
+                var id = in.readInt();
+                var score = in.readInt();
+                var country = in.readInt();
+                consumer.accept(new ParticipantScore(id, country, score));
+            }
+            entries += size;
+        }
+        return entries;
+    }
+}
@@ -1,13 +1,14 @@
 package ppd.response;
 
 import lombok.*;
+import ppd.utils.RankingCodec;
 
 import java.io.Serializable;
 import java.util.List;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Response implements Serializable {
@@ -15,6 +16,38 @@ public class Response implements Serializable {
     private String message;
     private List<CountryScore> countryRanking;
     private List<ParticipantScore> participantRanking;
+    // rankings sent compressed, when the request accepted compression and they were large enough
+    private byte[] encodedCountryRanking;
+    private byte[] encodedParticipantRanking;
+    // admission control: records the client may still send, and how long to back off when throttled
+    private int credits;
+    private long retryAfterMillis;
+    // CONTINUE: records of the streamed batch already enqueued, the client sends the body from there
+    private int resumeFrom;
+    // the participant ranking follows the response as a RankingStream
+    private boolean streamed;
+    // upper bound on how old the data of the answering process is: 0 on the primary, the replication lag on a replica
+    private long stalenessMillis;
+    // epoch millis of the ranking snapshot an AS_OF_RANKING response was served from
+    private long asOfMillis;
+
+    public List<CountryScore> getCountryRanking() {
+        if (countryRanking == null && encodedCountryRanking != null) {
+            countryRanking = RankingCodec.decodeCountries(encodedCountryRanking);
+        }
+        return countryRanking;
+    }
+
+    public List<ParticipantScore> getParticipantRanking() {
+        if (participantRanking == null && encodedParticipantRanking != null) {
+            participantRanking = RankingCodec.decodeParticipants(encodedParticipantRanking);
+        }
+        return participantRanking;
+    }
+
+    public boolean isCompressed() {
+        return encodedCountryRanking != null || encodedParticipantRanking != null;
+    }
 
     @Override
     public String toString() {
@@ -23,6 +56,13 @@ public class Response implements Serializable {
                 ", message='" + message + '\'' +
                 ", countryRanking=" + countryRanking +
                 ", participantRanking=" + participantRanking +
+                ", compressed=" + isCompressed() +
+                ", credits=" + credits +
+                ", retryAfterMillis=" + retryAfterMillis +
+                ", resumeFrom=" + resumeFrom +
+                ", streamed=" + streamed +
+                ", stalenessMillis=" + stalenessMillis +
+                ", asOfMillis=" + asOfMillis +
                 '}';
     }
 }
@@ -2,5 +2,7 @@ package ppd.response;
 
 public enum ResponseType {
     SUCCESS,
-    ERROR
+    ERROR,
+    THROTTLED,
+    CONTINUE
 }
@@ -0,0 +1,71 @@
+package ppd.trace;
+
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.request.ScoreSubmission;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads back the requests written by a {@link TraceWriter}.
+ */
+public class TraceReader implements Closeable {
+    private final DataInputStream in;
+
+    public TraceReader(String path) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(path)), 1 << 16));
+        if (in.readInt() != TraceWriter.MAGIC) {
+            throw new IOException("Not a traffic trace: " + path);
+        }
+        var version = in.readShort();
+        if (version != TraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version " + version + ": " + path);
+        }
+    }
+
+    // null at the end of the trace
+    public TraceRecord next() throws IOException {
+        long offsetNanos;
+        try {
+            offsetNanos = in.readLong();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        var type = RequestType.fromCode(in.readUnsignedByte());
+        var contest = in.readInt();
+        var country = in.readInt();
+        var sequence = in.readLong();
+        var acceptCompression = in.readBoolean();
+        var streamRanking = in.readBoolean();
+        var asOfMillis = in.readLong();
+
+        ArrayList<ScoreSubmission> submissions = null;
+        var count = in.readInt();
+        if (count >= 0) {
+            submissions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                submissions.add(new ScoreSubmission(in.readInt(), in.readInt()));
+            }
+        }
+
+        var request = Request.builder()
+                .type(type)
+                .contest(contest)
+                .country(country)
+                .sequence(sequence == TraceWriter.NO_SEQUENCE ? null : sequence)
+                .acceptCompression(acceptCompression)
+                .streamRanking(streamRanking)
+                .asOfMillis(asOfMillis)
+                .submissions(submissions)
+                .build();
+        return new TraceRecord(offsetNanos, request);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
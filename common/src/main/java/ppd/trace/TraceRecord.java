@@ -0,0 +1,9 @@
+package ppd.trace;
+
+import ppd.request.Request;
+
+/**
+ * A request captured by the server, with its arrival time relative to the first captured request.
+ */
+public record TraceRecord(long offsetNanos, Request request) {
+}
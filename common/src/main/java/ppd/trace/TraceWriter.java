@@ -0,0 +1,60 @@
+package ppd.trace;
+
+import ppd.request.Request;
+
+import java.io.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends requests with their arrival offset to a gzipped binary trace.
+ */
+public class TraceWriter implements Closeable {
+    static final int MAGIC = 0x50504454;
+    static final short VERSION = 1;
+    static final long NO_SEQUENCE = -1L;
+
+    private final DataOutputStream out;
+    private long startNanos = -1L;
+    private long records = 0;
+
+    public TraceWriter(String path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(path)), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public synchronized void write(Request request, long arrivalNanos) throws IOException {
+        if (startNanos < 0) {
+            startNanos = arrivalNanos;
+        }
+        out.writeLong(arrivalNanos - startNanos);
+        out.writeByte(request.getType().getCode());
+        out.writeInt(request.getContest());
+        out.writeInt(request.getCountry());
+        out.writeLong(request.getSequence() == null ? NO_SEQUENCE : request.getSequence());
+        out.writeBoolean(request.isAcceptCompression());
+        out.writeBoolean(request.isStreamRanking());
+        out.writeLong(request.getAsOfMillis());
+
+        var submissions = request.getSubmissions();
+        if (submissions == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(submissions.size());
+            for (var submission : submissions) {
+                out.writeInt(submission.id());
+                out.writeInt(submission.score());
+            }
+        }
+        records++;
+    }
+
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,10 +1,14 @@
 package ppd.utils;
 
+import java.util.Map;
+
 public record ContestConfig() {
     public static final String HOME_DIR = System.getProperty("user.dir");
     public static final String SERVER_DATA_DIR = HOME_DIR + "/server/src/main/java/ppd/data";
     public static final String CLIENT_DATA_DIR = HOME_DIR + "/client/src/main/java/ppd/data";
 
+    // contests hosted by one server, identified by the requests from 0 to CONTESTS - 1
+    public static final int CONTESTS = 1;
     public static final int COUNTRIES = 5;
     public static final int PROBLEMS = 10;
     public static final int MIN_PARTICIPANTS = 80;
@@ -12,15 +16,67 @@ public record ContestConfig() {
     public static final double NON_SOLVE_PROBABILITY = 0.1;
     public static final double FRAUD_PROBABILITY = 0.02;
     public static final int MAX_QUEUE_CAPACITY = 100;
+    public static final int QUEUE_QUANTUM = 16;
+    // records of one contest a writer applies before moving on to the next contest with pending records
+    public static final int CONTEST_QUANTUM = 64;
+    // relative share of the writers per country id, missing countries have weight 1
+    public static final Map<Integer, Integer> COUNTRY_WEIGHTS = Map.of();
+    public static final int ADMISSION_HIGH_WATERMARK = 2000;
+    public static final int ADMISSION_LOW_WATERMARK = 1000;
+    public static final long THROTTLE_RETRY_MILLIS = 200L;
+
+    public static final String RANKING_STORE = "linked";
+    public static final int OFF_HEAP_CAPACITY = 1 << 20;
 
     public static final int PORT = 5555;
     public static final int READERS = 4;
+    // reader tasks of one country run at once, a bursting country blocked on its full queue holds no more threads
+    public static final int READERS_PER_COUNTRY = 1;
     public static final int WRITERS = 8;
+    public static final boolean COMBINING_WRITERS = false;
+    public static final int COMBINING_FLUSH_SIZE = 256;
+    public static final long COMBINING_FLUSH_MILLIS = 50L;
     public static final long DELTA_X = 1L;
     public static final int DELTA_T = 4;
     public static final int CHUNK_SIZE = 20;
+    public static final boolean STREAM_SUBMISSIONS = false;
+    public static final int INGESTION_THREADS = 4;
+    public static final int INGESTION_QUEUE_CAPACITY = 64;
+    // score submission batches a client schedules ahead of its sender
+    public static final int MAX_SCHEDULED_SENDS = 16;
+    public static final boolean SUBSCRIBE_RANKINGS = false;
+    // ranking updates queued for a subscriber before it is disconnected as lagging
+    public static final int SUBSCRIPTION_OUTBOX_CAPACITY = 8;
+    public static final boolean ACCEPT_COMPRESSION = true;
+    public static final int COMPRESSION_MIN_ENTRIES = 256;
+    public static final boolean STREAM_FINAL_RANKING = false;
+    // final ranking sorted in bounded memory, in runs spilled to disk then merged
+    public static final boolean EXTERNAL_SORT = false;
+    public static final long EXTERNAL_SORT_MEMORY_BUDGET = 64L << 20;
+    public static final String EXTERNAL_SORT_SPILL_DIR = System.getProperty("java.io.tmpdir");
+    public static final boolean RANKING_HISTORY = false;
+    public static final long HISTORY_SNAPSHOT_MILLIS = 100L;
+    public static final long HISTORY_FULL_RETENTION_MILLIS = 10_000L;
+    public static final long HISTORY_COMPACTED_INTERVAL_MILLIS = 1_000L;
+    public static final int HISTORY_MAX_SNAPSHOTS = 4096;
+
+    public static final boolean RECORD_TRAFFIC = false;
+    public static final String TRAFFIC_TRACE_PATH = SERVER_DATA_DIR + "/traffic.trace";
 
     public static final int SERVER_TIMEOUT = 2;
     public static final int MAX_RETRIES = 5;
     public static final int RETRY_DELAY = 10;
+    public static final int SUBMISSION_TIMEOUT = 5;
+    public static final int SUBMISSION_WINDOW = 1024;
+
+    public static final int PARTITIONS = 3;
+    public static final int PARTITION_BASE_PORT = 6000;
+
+    // read replicas, started before the server, which streams them its applied updates
+    public static final int REPLICAS = 0;
+    public static final int REPLICA_BASE_PORT = 7000;
+    public static final int REPLICATION_BATCH_SIZE = 512;
+    public static final int REPLICATION_QUEUE_CAPACITY = 1 << 16;
+    public static final long REPLICATION_HEARTBEAT_MILLIS = 100L;
+    public static final int REPLICA_LINGER_SECONDS = 10;
 }
@@ -0,0 +1,137 @@
+package ppd.utils;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact encoding of rankings for compressed responses.
+ * Rankings are sorted by score, so consecutive scores (and ids within equal scores) are close to each other:
+ * each entry is written as zig-zag varint deltas from the previous entry, then the whole stream is deflated.
+ */
+public class RankingCodec {
+    private RankingCodec() {
+    }
+
+    public static byte[] encodeParticipants(List<ParticipantScore> ranking) {
+        return deflate(out -> {
+            writeVarInt(out, ranking.size());
+            int previousScore = 0;
+            int previousId = 0;
+            for (var participant : ranking) {
+                writeVarInt(out, zigZag(participant.score() - previousScore));
+                writeVarInt(out, zigZag(participant.id() - previousId));
+                writeVarInt(out, participant.country());
+                previousScore = participant.score();
+                previousId = participant.id();
+            }
+        });
+    }
+
+    public static List<ParticipantScore> decodeParticipants(byte[] encoded) {
+        try (var in = inflate(encoded)) {
+            var size = readVarInt(in);
+            var ranking = new ArrayList<ParticipantScore>(size);
+            int score = 0;
+            int id = 0;
+            for (int i = 0; i < size; i++) {
+                score += unZigZag(readVarInt(in));
+                id += unZigZag(readVarInt(in));
+                ranking.add(new ParticipantScore(id, readVarInt(in), score));
+            }
+            return ranking;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] encodeCountries(List<CountryScore> ranking) {
+        return deflate(out -> {
+            writeVarInt(out, ranking.size());
+            int previousScore = 0;
+            int previousCountry = 0;
+            for (var country : ranking) {
+                writeVarInt(out, zigZag(country.totalScore() - previousScore));
+                writeVarInt(out, zigZag(country.country() - previousCountry));
+                previousScore = country.totalScore();
+                previousCountry = country.country();
+            }
+        });
+    }
+
+    public static List<CountryScore> decodeCountries(byte[] encoded) {
+        try (var in = inflate(encoded)) {
+            var size = readVarInt(in);
+            var ranking = new ArrayList<CountryScore>(size);
+            int score = 0;
+            int country = 0;
+            for (int i = 0; i < size; i++) {
+                score += unZigZag(readVarInt(in));
+                country += unZigZag(readVarInt(in));
+                ranking.add(new CountryScore(country, score));
+            }
+            return ranking;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface EntryWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static byte[] deflate(EntryWriter writer) {
+        var bytes = new ByteArrayOutputStream();
+        // favour latency, most of the gain comes from the delta encoding
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try (var out = new BufferedOutputStream(new DeflaterOutputStream(bytes, deflater, 8192), 8192)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static InputStream inflate(byte[] encoded) {
+        return new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(encoded)), 8192);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            var b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated ranking encoding");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in ranking encoding");
+    }
+}
@@ -0,0 +1,22 @@
+#!/bin/bash
+
+# Starts a local cluster: one PartitionServer per partition and the ClusterCoordinator on the client port.
+# PARTITIONS must match ContestConfig.PARTITIONS, build the classpath first with: ./gradlew :server:installDist
+
+SERVER_CLASSPATH="./server/build/install/server/lib/*"
+PARTITIONS=3
+
+PIDS=()
+for ((i = 0; i < PARTITIONS; i++)); do
+    echo "Starting partition $i..."
+    java -cp "$SERVER_CLASSPATH" ppd.cluster.PartitionServer "$i" &
+    PIDS+=($!)
+done
+
+sleep 2
+
+echo "Starting coordinator..."
+java -cp "$SERVER_CLASSPATH" ppd.cluster.ClusterCoordinator &
+PIDS+=($!)
+
+wait "${PIDS[@]}"
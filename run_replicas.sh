@@ -0,0 +1,16 @@
+#!/bin/bash
+
+# Starts the read replicas, before the ContestServer which connects to them on startup.
+# REPLICAS must match ContestConfig.REPLICAS, build the classpath first with: ./gradlew :server:installDist
+
+SERVER_CLASSPATH="./server/build/install/server/lib/*"
+REPLICAS=2
+
+PIDS=()
+for ((i = 0; i < REPLICAS; i++)); do
+    echo "Starting replica $i..."
+    java -cp "$SERVER_CLASSPATH" ppd.replication.ReplicaServer "$i" &
+    PIDS+=($!)
+done
+
+wait "${PIDS[@]}"
@@ -2,33 +2,34 @@ package ppd;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import ppd.contest.ContestContext;
+import ppd.contest.ContestRegistry;
+import ppd.contest.ContestScheduler;
 import ppd.handlers.ContestWorker;
-import ppd.handlers.RankingWriter;
-import ppd.models.ScoreProcessingQueue;
-import ppd.models.SynchronizedRankingLinkedList;
+import ppd.handlers.TrafficRecorder;
+import ppd.models.ExternalRankingSorter;
+import ppd.models.RankingDigest;
+import ppd.replication.ReplicationLog;
 import ppd.response.CountryScore;
 import ppd.response.ParticipantScore;
 
 import java.io.*;
 import java.net.ServerSocket;
+import java.nio.file.Path;
 import java.net.SocketTimeoutException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import static ppd.contest.ContestRegistry.DEFAULT_CONTEST;
 import static ppd.utils.ContestConfig.*;
 
 public class ContestServer {
-    private static final AtomicInteger countriesLeft = new AtomicInteger(COUNTRIES);
-    private static final AtomicInteger remainingClients = new AtomicInteger(COUNTRIES);
-    private static final CountDownLatch finalRankingReadyLatch = new CountDownLatch(COUNTRIES);
-    private static final Set<Integer> finishedCountries = new ConcurrentSkipListSet<>();
-
-    private static final ExecutorService readerExecutor = Executors.newFixedThreadPool(READERS);
     private static final ExecutorService rankingExecutor = Executors.newSingleThreadExecutor();
+    private static final ExecutorService responseExecutor = Executors.newCachedThreadPool();
 
-    private static final ScoreProcessingQueue queue = new ScoreProcessingQueue(MAX_QUEUE_CAPACITY, countriesLeft);
-    private static final SynchronizedRankingLinkedList rankingList = new SynchronizedRankingLinkedList();
+    private static final ContestScheduler scheduler = new ContestScheduler(READERS, WRITERS);
+    private static final ContestRegistry registry = new ContestRegistry(CONTESTS, scheduler, rankingExecutor);
+    private static final TrafficRecorder trafficRecorder = TrafficRecorder.create(RECORD_TRAFFIC, TRAFFIC_TRACE_PATH);
 
     protected static final Logger log = LogManager.getLogger(ContestServer.class);
 
@@ -37,23 +38,23 @@ public class ContestServer {
 
     public static void main(String[] args) {
         var workerThreads = new ArrayList<Thread>();
-        var writerThreads = new Thread[WRITERS];
 
-        for (int i = 0; i < WRITERS; i++) {
-            var worker = new RankingWriter(queue, rankingList);
-            writerThreads[i] = worker;
+        // the replicas must see every update, they are connected before the writers start
+        ReplicationLog replicationLog = null;
+        if (REPLICAS > 0) {
+            replicationLog = ReplicationLog.connect(registry.get(DEFAULT_CONTEST).getRankingList(), REPLICAS);
         }
-        Arrays.stream(writerThreads).forEach(Thread::start);
+        scheduler.start();
 
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             log.info("Server started on port: {}, waiting for clients...", PORT);
-            // Alternative to shutting down the server socket prematurely: setting an accept timeout to re-check loop break condition
-            // serverSocket.setSoTimeout(1000 * SERVER_TIMEOUT);
+            // the last final ranking of the last contest stops accepting connections
+            registry.whenAllFinished().thenRun(() -> closeServerSocket(serverSocket));
 
             while (true) {
                 log.info("Waiting for client connection...");
 
-                if (remainingClients.get() == 0) {
+                if (registry.isAllFinished()) {
                     log.info("All clients have connected, shutting down socket and waiting for workers to finish...");
                     break;
                 }
@@ -66,10 +67,7 @@ public class ContestServer {
                     }
 
                     log.info("Client connected, starting reader to process request...");
-                    var worker = new ContestWorker(
-                            clientSocket, serverSocket, readerExecutor, rankingExecutor,
-                            remainingClients, countriesLeft, finishedCountries,
-                            finalRankingReadyLatch, queue, rankingList);
+                    var worker = new ContestWorker(clientSocket, rankingExecutor, responseExecutor, registry, trafficRecorder);
                     workerThreads.add(worker);
                     worker.start();
                 } catch (SocketTimeoutException e) {
@@ -83,7 +81,8 @@ public class ContestServer {
         }
 
         log.info("Cleaning up threads...");
-        queue.close();
+        var contests = registry.getContests();
+        contests.forEach(ContestContext::close);
 
         workerThreads.forEach(worker -> {
             try {
@@ -93,24 +92,15 @@ public class ContestServer {
             }
         });
 
-        Arrays.stream(writerThreads).forEach(writer -> {
-            try {
-                writer.join();
-                log.info("Writer {} finished", writer.getName());
-            } catch (InterruptedException e) {
-                log.error(e);
-            }
-        });
+        contests.forEach(contest -> contest.whenDrained().join());
+        contests.forEach(contest -> contest.getRankingPublisher().shutdown());
+        scheduler.shutdown();
 
-        readerExecutor.shutdown();
-        try {
-            if (!readerExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
-                readerExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            readerExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
+        if (replicationLog != null) {
+            replicationLog.close();
         }
+        trafficRecorder.close();
+        responseExecutor.shutdown();
 
         rankingExecutor.shutdown();
         try {
@@ -125,21 +115,56 @@ public class ContestServer {
         endTime = System.nanoTime();
         var elapsedTime = (endTime - startTime) / 1e6;
 
-        var participantRankingPath = SERVER_DATA_DIR + "/participant_ranking_parallel.txt";
-        var countryRankingPath = SERVER_DATA_DIR + "/country_ranking_parallel.txt";
-        outputParticipantRanking(rankingList.getParticipantRanking(), participantRankingPath);
+        contests.forEach(ContestServer::outputContest);
+        log.info("Server finished processing all data in {} milliseconds.", elapsedTime);
+    }
+
+    private static void closeServerSocket(ServerSocket serverSocket) {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+
+    private static void outputContest(ContestContext contest) {
+        var suffix = contest.getId() == DEFAULT_CONTEST ? "" : "_contest" + contest.getId();
+        var rankingList = contest.getRankingList();
+        var lifecycle = contest.getLifecycle();
+        var queue = contest.getQueue();
+
+        var participantRankingPath = SERVER_DATA_DIR + "/participant_ranking_parallel" + suffix + ".txt";
+        var countryRankingPath = SERVER_DATA_DIR + "/country_ranking_parallel" + suffix + ".txt";
+        if (EXTERNAL_SORT) {
+            // sorted again once drained, the ranking the clients got was sorted when the last country finished
+            try (var sorter = ExternalRankingSorter.sort(rankingList, EXTERNAL_SORT_MEMORY_BUDGET,
+                    Path.of(EXTERNAL_SORT_SPILL_DIR))) {
+                outputParticipantRanking(sorter, participantRankingPath);
+            }
+        } else {
+            outputParticipantRanking(rankingList.getParticipantRanking(), participantRankingPath);
+        }
+        lifecycle.close();
         outputCountryRanking(rankingList.getCountryRanking(), countryRankingPath);
 
-        var validParticipantRankingPath = SERVER_DATA_DIR + "/participant_ranking_valid.txt";
-        var validCountryRankingPath = SERVER_DATA_DIR + "/country_ranking_valid.txt";
+        // every record enqueued must have been applied exactly once, whichever writer applied it
+        if (contest.appliedDigest() != queue.inputDigest()) {
+            log.error("Contest {}: records lost or applied twice between the queue and the writers!", contest.getId());
+        }
 
-        if (!validateRanking(validParticipantRankingPath, participantRankingPath) ||
-                !validateRanking(validCountryRankingPath, countryRankingPath)) {
-            log.error("Invalid ranking computed!");
+        var rankingDigest = rankingList.digest();
+        if (!validateRanking(rankingDigest, suffix, participantRankingPath, countryRankingPath)) {
+            log.error("Contest {}: invalid ranking computed!", contest.getId());
         } else {
-            log.info("Ranking is valid.");
+            log.info("Contest {}: ranking is valid, digest {}.", contest.getId(), Long.toHexString(rankingDigest));
+        }
+        log.info("Contest {}: final ranking requests: {}", contest.getId(), contest.getFinalRankingMetrics());
+        log.info("Contest {}: duplicate score submissions ignored: {}", contest.getId(), contest.getDeduplicator().getDuplicates());
+        log.info("Contest {}: score submissions throttled: {}", contest.getId(), contest.getAdmission().getThrottled());
+        queue.getCountryStats().forEach(stats -> log.info("Contest {}: ingestion queue: {}", contest.getId(), stats));
+        if (contest.getRankingHistory() != null) {
+            log.info("Contest {}: {}", contest.getId(), contest.getRankingHistory());
         }
-        log.info("Server finished processing all data in {} milliseconds.", elapsedTime);
     }
 
     public static void outputParticipantRanking(List<ParticipantScore> ranking, String outputPath) {
@@ -153,6 +178,17 @@ public class ContestServer {
         }
     }
 
+    public static void outputParticipantRanking(ExternalRankingSorter ranking, String outputPath) {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(outputPath)))) {
+            ranking.merge((id, country, score) -> {
+                writer.write(id + "," + score + "," + country);
+                writer.println();
+            });
+        } catch (IOException e) {
+            log.error("Error writing participant ranking to file {}: {}", outputPath, e.getMessage());
+        }
+    }
+
     public static void outputCountryRanking(List<CountryScore> ranking, String outputPath) {
         try (PrintWriter writer = new PrintWriter(new FileWriter(outputPath))) {
             for (var node : ranking) {
@@ -164,6 +200,40 @@ public class ContestServer {
         }
     }
 
+    /**
+     * {@link RankingDigest} of a participant ranking file, in the format written by {@link #outputParticipantRanking}.
+     */
+    public static long participantRankingDigest(String path) {
+        long digest = 0;
+        try (var scanner = new Scanner(new File(path))) {
+            while (scanner.hasNextLine()) {
+                var tokens = scanner.nextLine().split(",");
+                digest += RankingDigest.entryHash(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[2]),
+                        Integer.parseInt(tokens[1]));
+            }
+        } catch (FileNotFoundException e) {
+            log.error("Ranking file not found: {}", path);
+        }
+        return digest;
+    }
+
+    /**
+     * Checks a ranking against the reference files of its contest: the digest of the ranking itself, then the files
+     * written from it line by line, in order.
+     */
+    public static boolean validateRanking(long rankingDigest, String suffix, String participantRankingPath,
+                                          String countryRankingPath) {
+        var validParticipantRankingPath = SERVER_DATA_DIR + "/participant_ranking_valid" + suffix + ".txt";
+        var validCountryRankingPath = SERVER_DATA_DIR + "/country_ranking_valid" + suffix + ".txt";
+        if (!new File(validParticipantRankingPath).exists() || !new File(validCountryRankingPath).exists()) {
+            log.error("Reference rankings not found: {}, {}", validParticipantRankingPath, validCountryRankingPath);
+            return false;
+        }
+        return rankingDigest == participantRankingDigest(validParticipantRankingPath)
+                && validateRanking(validParticipantRankingPath, participantRankingPath)
+                && validateRanking(validCountryRankingPath, countryRankingPath);
+    }
+
     public static boolean validateRanking(String validSequentialPath, String parallelPath) {
         try (var sequentialScanner = new Scanner(new File(validSequentialPath));
              var parallelScanner = new Scanner(new File(parallelPath))) {
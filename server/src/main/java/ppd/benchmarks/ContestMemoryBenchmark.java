@@ -0,0 +1,88 @@
+package ppd.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.contest.ContestContext;
+import ppd.contest.ContestRegistry;
+import ppd.contest.ContestScheduler;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Heap and threads added by 10, 100 and 1000 empty contests, written to {@code contest_memory_benchmark.csv}.
+ */
+public class ContestMemoryBenchmark {
+    private static final String RESULTS_PATH = SERVER_DATA_DIR + "/contest_memory_benchmark.csv";
+
+    private static final Logger log = LogManager.getLogger(ContestMemoryBenchmark.class);
+
+    record Result(int contests, long heapBytes, int threads, double openMillis) {
+        long heapBytesPerContest() {
+            return heapBytes / contests;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var results = new ArrayList<Result>();
+        // warm up once, the first contest also loads the classes
+        run(1);
+        for (var contests : new int[]{10, 100, 1000}) {
+            results.add(run(contests));
+        }
+
+        try (var writer = new PrintWriter(new FileWriter(RESULTS_PATH))) {
+            writer.println("Contests,Heap (bytes),Heap per contest (bytes),Threads,Open (ms)");
+            for (var result : results) {
+                writer.printf("%d, %d, %d, %d, %.3f%n", result.contests(), result.heapBytes(),
+                        result.heapBytesPerContest(), result.threads(), result.openMillis());
+            }
+        }
+    }
+
+    private static Result run(int contests) throws InterruptedException {
+        var rankingExecutor = Executors.newSingleThreadExecutor();
+        var scheduler = new ContestScheduler(READERS, WRITERS);
+        scheduler.start();
+        var registry = new ContestRegistry(contests, scheduler, rankingExecutor);
+
+        var heapBefore = usedHeap();
+        var threadsBefore = Thread.activeCount();
+        var openStart = System.nanoTime();
+        for (int id = 0; id < contests; id++) {
+            registry.get(id);
+        }
+        var openMillis = (System.nanoTime() - openStart) / 1e6;
+        var result = new Result(contests, usedHeap() - heapBefore, Thread.activeCount() - threadsBefore, openMillis);
+        log.info("{} heapPerContest={}", result, result.heapBytesPerContest());
+
+        for (var contest : registry.getContests()) {
+            for (int country = 1; country <= COUNTRIES; country++) {
+                contest.getLifecycle().markCountryFinished(country);
+            }
+            contest.close();
+        }
+        registry.getContests().stream().map(ContestContext::whenDrained).forEach(drained -> drained.join());
+        registry.getContests().forEach(contest -> contest.getRankingPublisher().shutdown());
+        scheduler.shutdown();
+        rankingExecutor.shutdown();
+        // the threads of this run must be gone before the next one counts them
+        rankingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        return result;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        var runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,119 @@
+package ppd.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.models.PackedParticipantRanking;
+import ppd.response.ParticipantScore;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static ppd.utils.ContestConfig.SERVER_DATA_DIR;
+
+/**
+ * Materialization of the participant ranking, packed radix sort against the boxed comparator sort it replaced,
+ * appended to {@code participant_ranking_benchmark.csv}.
+ * Usage: {@code ParticipantRankingBenchmark [participants...]}, run with
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=N} to vary the cores of the packed sort.
+ */
+public class ParticipantRankingBenchmark {
+    private static final String RESULTS_PATH = SERVER_DATA_DIR + "/participant_ranking_benchmark.csv";
+    private static final int RUNS = 5;
+
+    private static final Logger log = LogManager.getLogger(ParticipantRankingBenchmark.class);
+
+    record Result(int participants, int cores, int parallelism, double packedMillis, double boxedMillis) {
+        double speedup() {
+            return boxedMillis / packedMillis;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000_000, 10_000_000};
+
+        var results = new ArrayList<Result>();
+        for (var participants : sizes) {
+            results.add(run(participants));
+        }
+
+        var exists = Files.exists(Path.of(RESULTS_PATH));
+        try (var writer = new PrintWriter(new FileWriter(RESULTS_PATH, true))) {
+            if (!exists) {
+                writer.println("Participants,Cores,Parallelism,Packed (ms),Boxed (ms),Speedup");
+            }
+            for (var result : results) {
+                writer.printf("%d, %d, %d, %.1f, %.1f, %.2f%n", result.participants(), result.cores(),
+                        result.parallelism(), result.packedMillis(), result.boxedMillis(), result.speedup());
+            }
+        }
+    }
+
+    private static Result run(int participants) {
+        var random = new Random(participants);
+        var ids = new int[participants];
+        var countries = new int[participants];
+        var scores = new int[participants];
+        for (int i = 0; i < participants; i++) {
+            // unique ids of both signs
+            ids[i] = i * 0x9E3779B1;
+            countries[i] = 1 + random.nextInt(5);
+            scores[i] = random.nextInt(1_000);
+        }
+
+        var packed = new double[RUNS];
+        var boxed = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            var start = System.nanoTime();
+            var ranking = PackedParticipantRanking.builder(participants);
+            for (int i = 0; i < participants; i++) {
+                ranking.add(ids[i], countries[i], scores[i]);
+            }
+            var packedRanking = ranking.build();
+            packed[run] = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            var boxedRanking = boxedRanking(ids, countries, scores);
+            boxed[run] = (System.nanoTime() - start) / 1e6;
+
+            if (run == 0 && !packedRanking.equals(boxedRanking)) {
+                throw new IllegalStateException("Packed and boxed rankings differ for " + participants + " participants");
+            }
+        }
+
+        var result = new Result(participants, Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.getCommonPoolParallelism(), median(packed), median(boxed));
+        log.info("{} speedup={}", result, result.speedup());
+        return result;
+    }
+
+    private static List<ParticipantScore> boxedRanking(int[] ids, int[] countries, int[] scores) {
+        List<ParticipantScore> list = new LinkedList<>();
+        for (int i = 0; i < ids.length; i++) {
+            list.add(new ParticipantScore(ids[i], countries[i], scores[i]));
+        }
+        list.sort((a, b) -> {
+            if (b.score() != a.score()) {
+                return Integer.compare(b.score(), a.score());
+            }
+            return Integer.compare(b.id(), a.id());
+        });
+        return list;
+    }
+
+    private static double median(double[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
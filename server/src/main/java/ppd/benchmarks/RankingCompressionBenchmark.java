@@ -0,0 +1,131 @@
+package ppd.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.models.PackedParticipantRanking;
+import ppd.response.ParticipantScore;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+import ppd.utils.RankingCodec;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Compression ratio and added latency of compressed final ranking responses.
+ * Compares the serialized size of a plain response with the compressed one, and measures the encoding time on the
+ * server and the decoding time on the client, for the reference ranking of the repository and for generated rankings
+ * following the same distribution (scores summed over {@code PROBLEMS} problems, from 0 to 100 in steps of 10).
+ * Results are written to {@code ranking_compression_benchmark.csv}.
+ */
+public class RankingCompressionBenchmark {
+    private static final String RESULTS_PATH = SERVER_DATA_DIR + "/ranking_compression_benchmark.csv";
+    private static final int REPETITIONS = 20;
+
+    private static final Logger log = LogManager.getLogger(RankingCompressionBenchmark.class);
+
+    record Result(String dataset, int participants, long plainBytes, long compressedBytes,
+                  double encodeMillis, double decodeMillis) {
+        double ratio() {
+            return (double) plainBytes / compressedBytes;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var results = new ArrayList<Result>();
+
+        var reference = readRanking(SERVER_DATA_DIR + "/participant_ranking_valid.txt");
+        if (!reference.isEmpty()) {
+            results.add(run("participant_ranking_valid", reference));
+        }
+        for (var participants : new int[]{1_000, 100_000, 1_000_000}) {
+            results.add(run("generated", generateRanking(participants)));
+        }
+
+        try (var writer = new PrintWriter(new FileWriter(RESULTS_PATH))) {
+            writer.println("Dataset,Participants,Plain (bytes),Compressed (bytes),Ratio,Encode (ms),Decode (ms)");
+            for (var result : results) {
+                writer.printf("%s, %d, %d, %d, %.2f, %.3f, %.3f%n", result.dataset(), result.participants(),
+                        result.plainBytes(), result.compressedBytes(), result.ratio(),
+                        result.encodeMillis(), result.decodeMillis());
+            }
+        }
+    }
+
+    private static Result run(String dataset, List<ParticipantScore> ranking) throws IOException {
+        var plain = Response.builder()
+                .type(ResponseType.SUCCESS)
+                .participantRanking(ranking)
+                .build();
+        var plainBytes = serializedSize(plain);
+
+        byte[] encoded = null;
+        // warm up once, then average the repetitions
+        RankingCodec.decodeParticipants(RankingCodec.encodeParticipants(ranking));
+        var encodeStart = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            encoded = RankingCodec.encodeParticipants(ranking);
+        }
+        var encodeMillis = (System.nanoTime() - encodeStart) / 1e6 / REPETITIONS;
+
+        var decodeStart = System.nanoTime();
+        for (int i = 0; i < REPETITIONS; i++) {
+            RankingCodec.decodeParticipants(encoded);
+        }
+        var decodeMillis = (System.nanoTime() - decodeStart) / 1e6 / REPETITIONS;
+
+        if (!RankingCodec.decodeParticipants(encoded).equals(new ArrayList<>(ranking))) {
+            throw new IllegalStateException("Compressed ranking does not decode to the original one");
+        }
+
+        var compressed = Response.builder()
+                .type(ResponseType.SUCCESS)
+                .encodedParticipantRanking(encoded)
+                .build();
+        var result = new Result(dataset, ranking.size(), plainBytes, serializedSize(compressed), encodeMillis, decodeMillis);
+        log.info("{} ratio={}", result, String.format("%.2f", result.ratio()));
+        return result;
+    }
+
+    private static long serializedSize(Response response) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(response);
+        }
+        return bytes.size();
+    }
+
+    private static List<ParticipantScore> generateRanking(int participants) {
+        var random = new Random(participants);
+        var ranking = PackedParticipantRanking.builder(participants);
+        for (int id = 1; id <= participants; id++) {
+            var score = 0;
+            for (int problem = 0; problem < PROBLEMS; problem++) {
+                if (random.nextDouble() >= NON_SOLVE_PROBABILITY) {
+                    score += random.nextInt(11) * 10;
+                }
+            }
+            ranking.add(id, 1 + random.nextInt(COUNTRIES), score);
+        }
+        return ranking.build();
+    }
+
+    private static List<ParticipantScore> readRanking(String path) {
+        var ranking = new ArrayList<ParticipantScore>();
+        try (var scanner = new Scanner(new File(path))) {
+            while (scanner.hasNextLine()) {
+                var tokens = scanner.nextLine().split(",");
+                ranking.add(new ParticipantScore(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[2]),
+                        Integer.parseInt(tokens[1])));
+            }
+        } catch (FileNotFoundException e) {
+            log.error("Reference ranking not found: {}", path);
+        }
+        return ranking;
+    }
+}
@@ -0,0 +1,145 @@
+package ppd.benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.models.OffHeapRankingStore;
+import ppd.models.RankingStore;
+import ppd.models.SynchronizedRankingLinkedList;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static ppd.utils.ContestConfig.SERVER_DATA_DIR;
+
+/**
+ * Memory footprint and GC pauses of the ranking stores, written to {@code ranking_store_benchmark.csv}.
+ * Usage: {@code RankingStoreBenchmark [linked|off-heap participants]}, without arguments the default matrix is run.
+ */
+public class RankingStoreBenchmark {
+    private static final String RESULTS_PATH = SERVER_DATA_DIR + "/ranking_store_benchmark.csv";
+    private static final Logger log = LogManager.getLogger(RankingStoreBenchmark.class);
+
+    private static final ConcurrentLinkedQueue<Long> pauses = new ConcurrentLinkedQueue<>();
+
+    record Result(String store, int participants, double heapBytesPerParticipant, double offHeapBytesPerParticipant,
+                  int gcCount, long totalPauseMillis, long maxPauseMillis, double fillMillis, double rankingMillis) {}
+
+    public static void main(String[] args) {
+        registerGcListeners();
+
+        if (args.length == 2) {
+            report(List.of(run(args[0], Integer.parseInt(args[1]))));
+            return;
+        }
+
+        report(List.of(
+                run(RankingStore.LINKED, 10_000),
+                run(RankingStore.LINKED, 40_000),
+                run(RankingStore.OFF_HEAP, 40_000),
+                run(RankingStore.OFF_HEAP, 1_000_000),
+                run(RankingStore.OFF_HEAP, 10_000_000)
+        ));
+    }
+
+    private static Result run(String type, int participants) {
+        forceGc();
+        var heapBefore = usedHeap();
+        var directBefore = usedDirect();
+        pauses.clear();
+
+        RankingStore store = RankingStore.LINKED.equals(type)
+                ? new SynchronizedRankingLinkedList()
+                : new OffHeapRankingStore(participants);
+
+        var random = new Random(participants);
+        var countries = 5;
+        var fillStart = System.nanoTime();
+        for (int id = 0; id < participants; id++) {
+            store.addOrUpdate(id, 1 + id % countries, random.nextInt(11) * 10);
+        }
+        for (int i = 0; i < participants; i++) {
+            store.addOrUpdate(random.nextInt(participants), 1, random.nextInt(11) * 10);
+        }
+        var fillMillis = (System.nanoTime() - fillStart) / 1e6;
+
+        var rankingStart = System.nanoTime();
+        var ranking = store.getParticipantRanking();
+        store.getCountryRanking();
+        var rankingMillis = (System.nanoTime() - rankingStart) / 1e6;
+        ranking = null;
+
+        var gcCount = pauses.size();
+        var totalPause = pauses.stream().mapToLong(Long::longValue).sum();
+        var maxPause = pauses.stream().mapToLong(Long::longValue).max().orElse(0);
+
+        forceGc();
+        var heapBytes = Math.max(0, usedHeap() - heapBefore);
+        var directBytes = Math.max(0, usedDirect() - directBefore);
+        var result = new Result(type, store.size(), (double) heapBytes / participants, (double) directBytes / participants,
+                gcCount, totalPause, maxPause, fillMillis, rankingMillis);
+        log.info("{}", result);
+
+        // keep the store reachable until it has been measured
+        store.size();
+        return result;
+    }
+
+    private static void report(List<Result> results) {
+        try (var writer = new PrintWriter(new FileWriter(RESULTS_PATH))) {
+            writer.println("Store,Participants,Heap (B/participant),Off-heap (B/participant),GC count,GC pause total (ms),GC pause max (ms),Fill (ms),Ranking (ms)");
+            for (var result : results) {
+                writer.printf("%s, %d, %.1f, %.1f, %d, %d, %d, %.1f, %.1f%n",
+                        result.store(), result.participants(), result.heapBytesPerParticipant(),
+                        result.offHeapBytesPerParticipant(), result.gcCount(), result.totalPauseMillis(),
+                        result.maxPauseMillis(), result.fillMillis(), result.rankingMillis());
+            }
+        } catch (IOException e) {
+            log.error("Error writing benchmark results to {}: {}", RESULTS_PATH, e.getMessage());
+        }
+    }
+
+    private static void registerGcListeners() {
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        pauses.add(info.getGcInfo().getDuration());
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    private static void forceGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        try {
+            // let the collection notifications of the forced cycles arrive before measuring
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,107 @@
+package ppd.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.contest.ContestRegistry;
+import ppd.contest.ContestScheduler;
+import ppd.handlers.SubmissionsReader;
+import ppd.request.ScoreSubmission;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Reader latency of the other countries while one country saturates the ingestion path.
+ * Country 1 submits {@code READERS * 4} batches of {@code MAX_QUEUE_CAPACITY} records before the writers start, so its
+ * queue fills up and its readers block. Every other country then submits one batch, timed until its reader enqueued
+ * it; a country stalled behind the burst times out after {@code STALL_MILLIS}. The writers are started afterwards and
+ * the burst is timed until drained. Results are written to {@code reader_fairness_benchmark.csv}.
+ */
+public class ReaderFairnessBenchmark {
+    private static final String RESULTS_PATH = SERVER_DATA_DIR + "/reader_fairness_benchmark.csv";
+    private static final int BURSTING_COUNTRY = 1;
+    private static final long STALL_MILLIS = 5_000L;
+
+    private static final Logger log = LogManager.getLogger(ReaderFairnessBenchmark.class);
+
+    record Result(int country, int batches, int records, boolean enqueued, double enqueueMillis) {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var rankingExecutor = Executors.newSingleThreadExecutor();
+        var scheduler = new ContestScheduler(READERS, WRITERS);
+        var registry = new ContestRegistry(1, scheduler, rankingExecutor);
+        var contest = registry.get(ContestRegistry.DEFAULT_CONTEST);
+        var results = new ArrayList<Result>();
+
+        var burstBatches = READERS * 4;
+        var burstDone = new CountDownLatch(burstBatches);
+        var burstStart = System.nanoTime();
+        for (int batch = 0; batch < burstBatches; batch++) {
+            var reader = new SubmissionsReader(submissions(batch * MAX_QUEUE_CAPACITY, MAX_QUEUE_CAPACITY),
+                    BURSTING_COUNTRY, contest.getQueue());
+            contest.submitReader(BURSTING_COUNTRY, () -> {
+                reader.run();
+                burstDone.countDown();
+            });
+        }
+        // the first batch fills the queue of the country, the next reader blocks on it
+        Thread.sleep(200);
+
+        for (int country = 1; country <= COUNTRIES; country++) {
+            if (country == BURSTING_COUNTRY) {
+                continue;
+            }
+            var done = new CountDownLatch(1);
+            var reader = new SubmissionsReader(submissions(country * 1_000_000, CHUNK_SIZE), country, contest.getQueue());
+            var start = System.nanoTime();
+            contest.submitReader(country, () -> {
+                reader.run();
+                done.countDown();
+            });
+            var enqueued = done.await(STALL_MILLIS, TimeUnit.MILLISECONDS);
+            var result = new Result(country, 1, CHUNK_SIZE, enqueued, (System.nanoTime() - start) / 1e6);
+            log.info("{}", result);
+            results.add(result);
+        }
+
+        scheduler.start();
+        var drained = burstDone.await(STALL_MILLIS, TimeUnit.MILLISECONDS);
+        var burst = new Result(BURSTING_COUNTRY, burstBatches, burstBatches * MAX_QUEUE_CAPACITY, drained,
+                (System.nanoTime() - burstStart) / 1e6);
+        log.info("{}", burst);
+        results.add(0, burst);
+
+        for (int country = 1; country <= COUNTRIES; country++) {
+            contest.markCountryFinished(country);
+        }
+        contest.close();
+        contest.whenDrained().join();
+        contest.getRankingPublisher().shutdown();
+        scheduler.shutdown();
+        rankingExecutor.shutdown();
+
+        try (var writer = new PrintWriter(new FileWriter(RESULTS_PATH))) {
+            writer.println("Country,Batches,Records,Enqueued,Enqueue (ms)");
+            for (var result : results) {
+                writer.printf("%d, %d, %d, %b, %.3f%n", result.country(), result.batches(), result.records(),
+                        result.enqueued(), result.enqueueMillis());
+            }
+        }
+    }
+
+    private static List<ScoreSubmission> submissions(int firstId, int count) {
+        var submissions = new ArrayList<ScoreSubmission>(count);
+        for (int i = 0; i < count; i++) {
+            submissions.add(new ScoreSubmission(firstId + i, 1));
+        }
+        return submissions;
+    }
+}
@@ -0,0 +1,94 @@
+package ppd.cluster;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.ContestServer;
+import ppd.models.RankingDigest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Entry point of the cluster mode, routing the submissions to the {@link PartitionServer} nodes started beforehand.
+ */
+public class ClusterCoordinator {
+    private static final AtomicInteger countriesLeft = new AtomicInteger(COUNTRIES);
+    private static final AtomicInteger remainingClients = new AtomicInteger(COUNTRIES);
+    private static final CountDownLatch finalRankingReadyLatch = new CountDownLatch(COUNTRIES);
+    private static final Set<Integer> finishedCountries = new ConcurrentSkipListSet<>();
+
+    private static final PartitionRouter router = new PartitionRouter();
+
+    private static final Logger log = LogManager.getLogger(ClusterCoordinator.class);
+
+    private static double startTime = 0;
+    private static double endTime = 0;
+
+    public static void main(String[] args) {
+        var workerThreads = new ArrayList<Thread>();
+
+        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+            log.info("Coordinator started on port: {}, routing to {} partitions", PORT, PARTITIONS);
+
+            while (remainingClients.get() > 0) {
+                try {
+                    final var clientSocket = serverSocket.accept();
+
+                    if (startTime == 0) {
+                        startTime = System.nanoTime();
+                    }
+
+                    var worker = new CoordinatorWorker(
+                            clientSocket, serverSocket, router,
+                            remainingClients, countriesLeft, finishedCountries, finalRankingReadyLatch);
+                    workerThreads.add(worker);
+                    worker.start();
+                } catch (IOException e) {
+                    log.error(e);
+                }
+            }
+        } catch (IOException e) {
+            log.error(e);
+        }
+
+        workerThreads.forEach(worker -> {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        });
+
+        try {
+            endTime = System.nanoTime();
+            var elapsedTime = (endTime - startTime) / 1e6;
+
+            var participantRankingPath = SERVER_DATA_DIR + "/participant_ranking_parallel.txt";
+            var countryRankingPath = SERVER_DATA_DIR + "/country_ranking_parallel.txt";
+            var finalRanking = router.finalParticipantRanking();
+            ContestServer.outputParticipantRanking(finalRanking, participantRankingPath);
+            ContestServer.outputCountryRanking(RankingMerger.countryRankingOf(finalRanking), countryRankingPath);
+
+            // the cluster hosts the default contest only
+            if (!ContestServer.validateRanking(RankingDigest.of(finalRanking), "", participantRankingPath,
+                    countryRankingPath)) {
+                log.error("Invalid ranking computed!");
+            } else {
+                log.info("Ranking is valid.");
+            }
+            log.info("Cluster finished processing all data in {} milliseconds.", elapsedTime);
+        } catch (InterruptedException | ExecutionException e) {
+            log.error(e);
+        } finally {
+            router.shutdown();
+        }
+    }
+}
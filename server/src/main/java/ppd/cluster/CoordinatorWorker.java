@@ -0,0 +1,183 @@
+package ppd.cluster;
+
+import lombok.SneakyThrows;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.request.SubmissionStream;
+import ppd.response.CountryScore;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ppd.utils.ContestConfig.DELTA_T;
+
+public class CoordinatorWorker extends Thread {
+    private final Socket clientSocket;
+    private final ServerSocket serverSocket;
+    private final PartitionRouter router;
+
+    private static final Logger log = LogManager.getLogger(CoordinatorWorker.class);
+
+    private final CountDownLatch finalRankingReadyLatch;
+    private final AtomicInteger remainingClients;
+    private final AtomicInteger countriesLeft;
+    private final Set<Integer> finishedCountries;
+
+    private static volatile List<CountryScore> cachedPartialRanking = null;
+    private static volatile long lastComputedTime = 0L;
+    private static final Object cacheLock = new Object();
+
+    public CoordinatorWorker(Socket clientSocket,
+                             ServerSocket serverSocket,
+                             PartitionRouter router,
+                             AtomicInteger remainingClients,
+                             AtomicInteger countriesLeft,
+                             Set<Integer> finishedCountries,
+                             CountDownLatch finalRankingReadyLatch) {
+        this.clientSocket = clientSocket;
+        this.serverSocket = serverSocket;
+        this.router = router;
+        this.remainingClients = remainingClients;
+        this.countriesLeft = countriesLeft;
+        this.finishedCountries = finishedCountries;
+        this.finalRankingReadyLatch = finalRankingReadyLatch;
+    }
+
+    @Override
+    public void run() {
+        try (var out = new ObjectOutputStream(clientSocket.getOutputStream());
+             var in = new ObjectInputStream(clientSocket.getInputStream())) {
+
+            var request = (Request) in.readObject();
+            if (request.getType() == RequestType.SCORE_SUBMISSION_STREAM) {
+                // the partitions take whole batches, the streamed body is collected before it is routed:
+                // a cut stream routed nothing and is resumed from its start
+                if (request.isResumeStream()) {
+                    sendResponse(out, Response.builder()
+                            .type(ResponseType.CONTINUE)
+                            .resumeFrom(0)
+                            .build());
+                }
+                request.setSubmissions(SubmissionStream.readAll(in, request.getStreamedSubmissions()));
+                request.setType(RequestType.SCORE_SUBMISSION);
+            }
+            handleRequest(request, out);
+            clientSocket.close();
+        } catch (IOException | ClassNotFoundException e) {
+            log.error(e);
+        }
+    }
+
+    private void handleRequest(Request request, ObjectOutputStream out) {
+        switch (request.getType()) {
+            case SCORE_SUBMISSION -> processScoreSubmissions(request, out);
+            case PARTIAL_COUNTRY_RANKING -> processPartialCountryRanking(request, out);
+            case FINAL_PARTICIPANT_RANKING -> processFinalParticipantRanking(request, out);
+            default -> {
+                log.error("Invalid request type: {}", request.getType());
+                sendErrorResponse(out, "Unsupported request type: " + request.getType());
+            }
+        }
+    }
+
+    @SneakyThrows
+    private void sendResponse(ObjectOutputStream out, Response response) {
+        out.writeObject(response);
+        out.flush();
+    }
+
+    private void sendErrorResponse(ObjectOutputStream out, String message) {
+        sendResponse(out, Response.builder()
+                .type(ResponseType.ERROR)
+                .message(message)
+                .build());
+    }
+
+    private void signalCountrySubmissionsFinished(Request request) {
+        if (finishedCountries.add(request.getCountry())) {
+            countriesLeft.decrementAndGet();
+            finalRankingReadyLatch.countDown();
+        }
+    }
+
+    private void signalClientFinished(Request request) {
+        if (finishedCountries.contains(request.getCountry())) {
+            log.info("Client {} finished", request.getCountry());
+            remainingClients.decrementAndGet();
+        }
+    }
+
+    private void processScoreSubmissions(Request request, ObjectOutputStream out) {
+        try {
+            // every partition deduplicates its part, a batch applied by some of them only is safely resent
+            if (router.submit(request)) {
+                sendResponse(out, Response.builder()
+                        .type(ResponseType.SUCCESS)
+                        .message("Score submissions received successfully")
+                        .build());
+            } else {
+                sendErrorResponse(out, "Score submissions rejected by a partition");
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            log.error(e);
+            sendErrorResponse(out, "Error routing score submissions");
+        }
+    }
+
+    private void processPartialCountryRanking(Request request, ObjectOutputStream out) {
+        try {
+            List<CountryScore> partialRanking;
+            synchronized (cacheLock) {
+                long currentTime = System.currentTimeMillis();
+                if (cachedPartialRanking == null || (currentTime - lastComputedTime) > DELTA_T) {
+                    cachedPartialRanking = router.countryRanking();
+                    lastComputedTime = currentTime;
+                }
+                partialRanking = cachedPartialRanking;
+            }
+
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .countryRanking(partialRanking)
+                    .build());
+            signalCountrySubmissionsFinished(request);
+            log.info("Partial country ranking sent to client: {}", request.getCountry());
+        } catch (ExecutionException | InterruptedException e) {
+            log.error(e);
+            sendErrorResponse(out, "Error processing partial country ranking");
+        }
+    }
+
+    private void processFinalParticipantRanking(Request request, ObjectOutputStream out) {
+        try {
+            finalRankingReadyLatch.await();
+
+            var finalRanking = router.finalParticipantRanking();
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .participantRanking(finalRanking)
+                    .build());
+            log.info("Final participant ranking sent to client: {}", request.getCountry());
+
+            signalClientFinished(request);
+            if (remainingClients.get() == 0) {
+                serverSocket.close();
+            }
+        } catch (IOException | ExecutionException | InterruptedException e) {
+            log.error(e);
+            sendErrorResponse(out, "Error processing final participant ranking");
+        }
+    }
+}
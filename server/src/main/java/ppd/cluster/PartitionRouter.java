@@ -0,0 +1,140 @@
+package ppd.cluster;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.request.ScoreSubmission;
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ppd.utils.ContestConfig.PARTITIONS;
+import static ppd.utils.ContestConfig.PARTITION_BASE_PORT;
+
+/**
+ * Forwards requests from the coordinator to the partition nodes, chosen by the hash of the participant id.
+ */
+public class PartitionRouter {
+    private final int partitions;
+    private final ExecutorService forwardExecutor;
+
+    private List<ParticipantScore> finalRanking = null;
+
+    private static final Logger log = LogManager.getLogger(PartitionRouter.class);
+
+    public PartitionRouter() {
+        this(PARTITIONS);
+    }
+
+    public PartitionRouter(int partitions) {
+        this.partitions = partitions;
+        this.forwardExecutor = Executors.newCachedThreadPool();
+    }
+
+    public int partitionOf(int id) {
+        return Math.floorMod(Integer.hashCode(id), partitions);
+    }
+
+    public boolean submit(Request request) throws InterruptedException, ExecutionException {
+        var parts = new ArrayList<List<ScoreSubmission>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (var submission : request.getSubmissions()) {
+            parts.get(partitionOf(submission.id())).add(submission);
+        }
+
+        var acknowledgements = new ArrayList<Future<Response>>();
+        for (int i = 0; i < partitions; i++) {
+            if (parts.get(i).isEmpty()) {
+                continue;
+            }
+            var partitionRequest = Request.builder()
+                    .type(RequestType.SCORE_SUBMISSION)
+                    .country(request.getCountry())
+                    .sequence(request.getSequence())
+                    .submissions(parts.get(i))
+                    .build();
+            acknowledgements.add(forward(i, partitionRequest));
+        }
+
+        var success = true;
+        for (var acknowledgement : acknowledgements) {
+            success &= acknowledgement.get().getType() == ResponseType.SUCCESS;
+        }
+        return success;
+    }
+
+    public List<CountryScore> countryRanking() throws InterruptedException, ExecutionException {
+        var responses = broadcast(RequestType.PARTIAL_COUNTRY_RANKING);
+        var totals = new ArrayList<List<CountryScore>>(partitions);
+        for (var response : responses) {
+            totals.add(response.getCountryRanking());
+        }
+        return RankingMerger.mergeCountryTotals(totals);
+    }
+
+    public synchronized List<ParticipantScore> finalParticipantRanking() throws InterruptedException, ExecutionException {
+        if (finalRanking != null) {
+            return finalRanking;
+        }
+
+        var responses = broadcast(RequestType.FINAL_PARTICIPANT_RANKING);
+        var rankings = new ArrayList<List<ParticipantScore>>(partitions);
+        for (var response : responses) {
+            rankings.add(response.getParticipantRanking());
+        }
+        finalRanking = RankingMerger.mergeParticipantRankings(rankings);
+        return finalRanking;
+    }
+
+    public void shutdown() {
+        forwardExecutor.shutdown();
+    }
+
+    private List<Response> broadcast(RequestType type) throws InterruptedException, ExecutionException {
+        var pending = new ArrayList<Future<Response>>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            pending.add(forward(i, Request.builder().type(type).build()));
+        }
+
+        var responses = new ArrayList<Response>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            var response = pending.get(i).get();
+            if (response.getType() != ResponseType.SUCCESS) {
+                throw new ExecutionException(new IOException("Partition " + i + " failed: " + response.getMessage()));
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private Future<Response> forward(int partition, Request request) {
+        return forwardExecutor.submit(() -> {
+            try (var socket = new Socket("localhost", PARTITION_BASE_PORT + partition);
+                 var out = new ObjectOutputStream(socket.getOutputStream());
+                 var in = new ObjectInputStream(socket.getInputStream())) {
+
+                out.writeObject(request);
+                out.flush();
+                return (Response) in.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                log.error("Error forwarding {} to partition {}: {}", request.getType(), partition, e.getMessage());
+                throw e;
+            }
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package ppd.cluster;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.handlers.RankingWriter;
+import ppd.models.AdmissionController;
+import ppd.models.RankingStore;
+import ppd.models.ScoreProcessingQueue;
+import ppd.models.SubmissionDeduplicator;
+import ppd.response.ParticipantScore;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Cluster node owning a single partition of the participants, with the reader/writer pipeline of {@link ppd.ContestServer}.
+ */
+public class PartitionServer {
+    private final int partition;
+    private final int port;
+
+    // a partition does not track countries itself, it stays open until the coordinator requests the final ranking
+    private final AtomicInteger countriesLeft = new AtomicInteger(1);
+    private final ExecutorService readerExecutor = Executors.newFixedThreadPool(READERS);
+    private final ScoreProcessingQueue queue = new ScoreProcessingQueue(MAX_QUEUE_CAPACITY, countriesLeft);
+    private final RankingStore rankingList = RankingStore.create(RANKING_STORE);
+    private final List<RankingWriter> writers = new ArrayList<>();
+    private final AdmissionController admission = AdmissionController.unbounded();
+    private final SubmissionDeduplicator deduplicator = new SubmissionDeduplicator(SUBMISSION_WINDOW);
+
+    private ServerSocket serverSocket;
+    private List<ParticipantScore> finalRanking = null;
+
+    private static final Logger log = LogManager.getLogger(PartitionServer.class);
+
+    public PartitionServer(int partition) {
+        this.partition = partition;
+        this.port = PARTITION_BASE_PORT + partition;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            log.error("Usage: PartitionServer <partition index in [0, {})>", PARTITIONS);
+            System.exit(1);
+        }
+
+        var partition = Integer.parseInt(args[0]);
+        if (partition < 0 || partition >= PARTITIONS) {
+            log.error("Invalid partition index: {}", partition);
+            System.exit(1);
+        }
+        new PartitionServer(partition).run();
+    }
+
+    public void run() {
+        for (int i = 0; i < WRITERS; i++) {
+            var writer = new RankingWriter(queue, rankingList, admission);
+            writers.add(writer);
+            writer.start();
+        }
+
+        var workerThreads = new ArrayList<Thread>();
+        try (var socket = new ServerSocket(port)) {
+            serverSocket = socket;
+            log.info("Partition {} started on port: {}", partition, port);
+
+            while (!socket.isClosed()) {
+                try {
+                    var clientSocket = socket.accept();
+                    var worker = new PartitionWorker(clientSocket, this);
+                    workerThreads.add(worker);
+                    worker.start();
+                } catch (SocketException e) {
+                    log.info("Partition {} socket closed, shutting down...", partition);
+                }
+            }
+        } catch (IOException e) {
+            log.error(e);
+        }
+
+        workerThreads.forEach(worker -> {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        });
+        log.info("Partition {} finished.", partition);
+    }
+
+    public void submit(Runnable reader) {
+        readerExecutor.submit(reader);
+    }
+
+    public ScoreProcessingQueue getQueue() {
+        return queue;
+    }
+
+    public SubmissionDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    public RankingStore getRankingList() {
+        return rankingList;
+    }
+
+    public synchronized List<ParticipantScore> finalRanking() throws InterruptedException {
+        if (finalRanking != null) {
+            return finalRanking;
+        }
+
+        readerExecutor.shutdown();
+        if (!readerExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+            readerExecutor.shutdownNow();
+        }
+
+        countriesLeft.set(0);
+        queue.close();
+        for (var writer : writers) {
+            writer.join();
+        }
+
+        finalRanking = rankingList.getParticipantRanking();
+        log.info("Partition {} final ranking computed with {} participants, {} duplicate score submissions ignored",
+                partition, finalRanking.size(), deduplicator.getDuplicates());
+        return finalRanking;
+    }
+
+    public void shutdown() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ppd.cluster;
+
+import lombok.SneakyThrows;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.handlers.SubmissionsReader;
+import ppd.models.SubmissionDeduplicator;
+import ppd.request.Request;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+
+public class PartitionWorker extends Thread {
+    private final Socket coordinatorSocket;
+    private final PartitionServer partition;
+
+    private static final Logger log = LogManager.getLogger(PartitionWorker.class);
+
+    public PartitionWorker(Socket coordinatorSocket, PartitionServer partition) {
+        this.coordinatorSocket = coordinatorSocket;
+        this.partition = partition;
+    }
+
+    @Override
+    public void run() {
+        try (var out = new ObjectOutputStream(coordinatorSocket.getOutputStream());
+             var in = new ObjectInputStream(coordinatorSocket.getInputStream())) {
+
+            var request = (Request) in.readObject();
+            handleRequest(request, out);
+            coordinatorSocket.close();
+        } catch (IOException | ClassNotFoundException e) {
+            log.error(e);
+        }
+    }
+
+    private void handleRequest(Request request, ObjectOutputStream out) throws IOException {
+        switch (request.getType()) {
+            case SCORE_SUBMISSION -> processScoreSubmissions(request, out);
+            case PARTIAL_COUNTRY_RANKING -> processCountryTotals(out);
+            case FINAL_PARTICIPANT_RANKING -> processFinalPartitionRanking(out);
+            default -> {
+                log.error("Invalid request type for partition: {}", request.getType());
+                sendResponse(out, Response.builder()
+                        .type(ResponseType.ERROR)
+                        .message("Unsupported request type: " + request.getType())
+                        .build());
+            }
+        }
+    }
+
+    @SneakyThrows
+    private void sendResponse(ObjectOutputStream out, Response response) {
+        out.writeObject(response);
+        out.flush();
+    }
+
+    private void processScoreSubmissions(Request request, ObjectOutputStream out) {
+        if (!SubmissionDeduplicator.isValidSequence(request)) {
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.ERROR)
+                    .message("Invalid sequence number: " + request.getSequence())
+                    .build());
+            return;
+        }
+        if (!partition.getDeduplicator().accept(request)) {
+            log.info("Duplicate score submissions {} of client {} ignored", request.getSequence(), request.getCountry());
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .message("Duplicate score submissions ignored by partition")
+                    .build());
+            return;
+        }
+        partition.submit(new SubmissionsReader(request.getSubmissions(), request.getCountry(), partition.getQueue()));
+        sendResponse(out, Response.builder()
+                .type(ResponseType.SUCCESS)
+                .message("Score submissions received by partition")
+                .build());
+    }
+
+    private void processCountryTotals(ObjectOutputStream out) {
+        sendResponse(out, Response.builder()
+                .type(ResponseType.SUCCESS)
+                .countryRanking(partition.getRankingList().getCountryRanking())
+                .build());
+    }
+
+    private void processFinalPartitionRanking(ObjectOutputStream out) {
+        try {
+            var ranking = partition.finalRanking();
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .participantRanking(ranking)
+                    .build());
+            partition.shutdown();
+        } catch (InterruptedException e) {
+            log.error(e);
+            sendResponse(out, Response.builder()
+                    .type(ResponseType.ERROR)
+                    .message("Error computing final partition ranking")
+                    .build());
+        }
+    }
+}
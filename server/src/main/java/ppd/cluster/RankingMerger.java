@@ -0,0 +1,73 @@
+package ppd.cluster;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.util.*;
+
+public class RankingMerger {
+    public static final Comparator<ParticipantScore> PARTICIPANT_ORDER = (a, b) -> {
+        if (b.score() != a.score()) {
+            return Integer.compare(b.score(), a.score());
+        } else {
+            return Integer.compare(b.id(), a.id());
+        }
+    };
+
+    public static final Comparator<CountryScore> COUNTRY_ORDER = (a, b) -> {
+        if (b.totalScore() != a.totalScore()) {
+            return Integer.compare(b.totalScore(), a.totalScore());
+        } else {
+            return Integer.compare(b.country(), a.country());
+        }
+    };
+
+    private RankingMerger() {
+    }
+
+    public static List<CountryScore> mergeCountryTotals(List<List<CountryScore>> partitionTotals) {
+        Map<Integer, Integer> countryScores = new HashMap<>();
+        for (var totals : partitionTotals) {
+            for (var countryScore : totals) {
+                countryScores.merge(countryScore.country(), countryScore.totalScore(), Integer::sum);
+            }
+        }
+
+        List<CountryScore> list = new ArrayList<>(countryScores.size());
+        countryScores.forEach((country, score) -> list.add(new CountryScore(country, score)));
+        list.sort(COUNTRY_ORDER);
+        return list;
+    }
+
+    public static List<CountryScore> countryRankingOf(List<ParticipantScore> participantRanking) {
+        List<CountryScore> totals = new ArrayList<>();
+        for (var participant : participantRanking) {
+            totals.add(new CountryScore(participant.country(), participant.score()));
+        }
+        return mergeCountryTotals(List.of(totals));
+    }
+
+    public static List<ParticipantScore> mergeParticipantRankings(List<List<ParticipantScore>> partitionRankings) {
+        record Cursor(ParticipantScore current, Iterator<ParticipantScore> rest) {}
+
+        var size = partitionRankings.stream().mapToInt(List::size).sum();
+        var heap = new PriorityQueue<Cursor>(Math.max(1, partitionRankings.size()),
+                (a, b) -> PARTICIPANT_ORDER.compare(a.current(), b.current()));
+        for (var ranking : partitionRankings) {
+            var iterator = ranking.iterator();
+            if (iterator.hasNext()) {
+                heap.add(new Cursor(iterator.next(), iterator));
+            }
+        }
+
+        List<ParticipantScore> merged = new ArrayList<>(size);
+        while (!heap.isEmpty()) {
+            var cursor = heap.poll();
+            merged.add(cursor.current());
+            if (cursor.rest().hasNext()) {
+                heap.add(new Cursor(cursor.rest().next(), cursor.rest()));
+            }
+        }
+        return merged;
+    }
+}
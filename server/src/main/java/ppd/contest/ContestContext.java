@@ -0,0 +1,173 @@
+package ppd.contest;
+
+import lombok.Getter;
+import ppd.handlers.RankingPublisher;
+import ppd.metrics.FinalRankingMetrics;
+import ppd.models.*;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * State of one contest hosted by the server, only the thread pools of the {@link ContestScheduler} are shared.
+ */
+public class ContestContext {
+    @Getter
+    private final int id;
+    @Getter
+    private final ObservableRankingStore rankingList;
+    @Getter
+    private final WriterFlushBarrier flushBarrier;
+    @Getter
+    private final ContestLifecycle lifecycle;
+    @Getter
+    private final FinalRankingMetrics finalRankingMetrics = new FinalRankingMetrics();
+    @Getter
+    private final AdmissionController admission = new AdmissionController(ADMISSION_HIGH_WATERMARK, ADMISSION_LOW_WATERMARK);
+    @Getter
+    private final SubmissionDeduplicator deduplicator = new SubmissionDeduplicator(SUBMISSION_WINDOW);
+    @Getter
+    private final ScoreProcessingQueue queue;
+    @Getter
+    private final RankingPublisher rankingPublisher;
+    // null unless RANKING_HISTORY is set
+    @Getter
+    private final RankingHistory rankingHistory;
+
+    private final ContestScheduler scheduler;
+    // reader tasks over the contest's share of the reader pool wait here, in submission order
+    private final Queue<Runnable> pendingReaders = new ArrayDeque<>();
+    private int runningReaders = 0;
+    // under the lock of pendingReaders
+    private final Map<Integer, CountryReaders> countryReaders = new HashMap<>();
+
+    // digest of the records applied by the writers, to be matched with the queue's input digest
+    private final LongAdder appliedDigest = new LongAdder();
+    private final boolean[] finishedWriters;
+    private final AtomicInteger writersLeft;
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+    public ContestContext(int id, ContestScheduler scheduler, ExecutorService rankingExecutor) {
+        this.id = id;
+        this.scheduler = scheduler;
+        this.rankingList = new ObservableRankingStore(RankingStore.create(RANKING_STORE));
+        this.flushBarrier = new WriterFlushBarrier(COMBINING_WRITERS ? scheduler.getWriters() : 0);
+        this.lifecycle = new ContestLifecycle(COUNTRIES, rankingList, flushBarrier, rankingExecutor);
+        this.queue = new ScoreProcessingQueue(MAX_QUEUE_CAPACITY, QUEUE_QUANTUM, COUNTRY_WEIGHTS, lifecycle.getCountriesLeft());
+        this.rankingPublisher = new RankingPublisher(rankingList, rankingExecutor, lifecycle,
+                scheduler.getPublisherScheduler());
+        this.rankingHistory = RANKING_HISTORY ? new RankingHistory(COUNTRIES, HISTORY_SNAPSHOT_MILLIS,
+                HISTORY_FULL_RETENTION_MILLIS, HISTORY_COMPACTED_INTERVAL_MILLIS, HISTORY_MAX_SNAPSHOTS) : null;
+        if (rankingHistory != null) {
+            rankingList.addListener(rankingHistory);
+        }
+        this.finishedWriters = new boolean[scheduler.getWriters()];
+        this.writersLeft = new AtomicInteger(scheduler.getWriters());
+    }
+
+    /**
+     * Runs the reader task on the shared pool, at most {@code READERS_PER_COUNTRY} per country and the contest's share
+     * of the pool at once, so a country blocked on its full queue only holds its own readers.
+     */
+    public void submitReader(int country, Runnable reader) {
+        synchronized (pendingReaders) {
+            var readers = countryReaders.computeIfAbsent(country, ignored -> new CountryReaders());
+            if (readers.inFlight >= READERS_PER_COUNTRY) {
+                readers.waiting.add(reader);
+                return;
+            }
+            readers.inFlight++;
+            if (runningReaders >= scheduler.readerShare()) {
+                pendingReaders.add(() -> runReader(country, reader));
+                return;
+            }
+            runningReaders++;
+        }
+        scheduler.getReaderExecutor().execute(() -> runReader(country, reader));
+    }
+
+    private void runReader(int country, Runnable reader) {
+        try {
+            reader.run();
+        } finally {
+            Runnable next;
+            var countryFinished = false;
+            synchronized (pendingReaders) {
+                var readers = countryReaders.get(country);
+                var nextOfCountry = readers.waiting.poll();
+                if (nextOfCountry != null) {
+                    // behind the readers of the other countries
+                    pendingReaders.add(() -> runReader(country, nextOfCountry));
+                } else {
+                    readers.inFlight--;
+                    countryFinished = readers.finished && readers.inFlight == 0;
+                }
+                // the share shrinks when contests are added, the readers over it are not replaced
+                next = runningReaders <= scheduler.readerShare() ? pendingReaders.poll() : null;
+                if (next == null) {
+                    runningReaders--;
+                }
+            }
+            if (countryFinished) {
+                lifecycle.markCountryFinished(country);
+            }
+            if (next != null) {
+                // at the back of the pool's queue, behind the readers of the other contests
+                scheduler.getReaderExecutor().execute(next);
+            }
+        }
+    }
+
+    // deferred until the readers of its acknowledged batches are done, their records would be lost otherwise
+    public void markCountryFinished(int country) {
+        synchronized (pendingReaders) {
+            var readers = countryReaders.computeIfAbsent(country, ignored -> new CountryReaders());
+            if (readers.inFlight > 0) {
+                readers.finished = true;
+                return;
+            }
+        }
+        lifecycle.markCountryFinished(country);
+    }
+
+    public void close() {
+        queue.close();
+        scheduler.signalWork();
+    }
+
+    boolean isFinishedBy(int writer) {
+        return finishedWriters[writer];
+    }
+
+    // after the writer published everything it applied
+    void writerFinished(int writer, long writerDigest) {
+        finishedWriters[writer] = true;
+        appliedDigest.add(writerDigest);
+        if (writersLeft.decrementAndGet() == 0) {
+            scheduler.unregister(this);
+            drained.complete(null);
+        }
+    }
+
+    public CompletableFuture<Void> whenDrained() {
+        return drained;
+    }
+
+    public long appliedDigest() {
+        return appliedDigest.sum();
+    }
+
+    private static class CountryReaders {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int inFlight = 0;
+        private boolean finished = false;
+    }
+}
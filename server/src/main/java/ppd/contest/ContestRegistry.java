@@ -0,0 +1,74 @@
+package ppd.contest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The contests hosted by the server, each created on its first request.
+ */
+public class ContestRegistry {
+    public static final int DEFAULT_CONTEST = 0;
+
+    private final int contests;
+    private final ContestScheduler scheduler;
+    private final ExecutorService rankingExecutor;
+    private final Map<Integer, ContestContext> contexts = new ConcurrentHashMap<>();
+    private final Set<Integer> finishedContests = new ConcurrentSkipListSet<>();
+    private final CompletableFuture<Void> allFinished = new CompletableFuture<>();
+
+    private static final Logger log = LogManager.getLogger(ContestRegistry.class);
+
+    public ContestRegistry(int contests, ContestScheduler scheduler, ExecutorService rankingExecutor) {
+        this.contests = contests;
+        this.scheduler = scheduler;
+        this.rankingExecutor = rankingExecutor;
+    }
+
+    // null if there is no such contest
+    public ContestContext get(int id) {
+        if (id < 0 || id >= contests) {
+            return null;
+        }
+        return contexts.computeIfAbsent(id, this::create);
+    }
+
+    private ContestContext create(int id) {
+        var contest = new ContestContext(id, scheduler, rankingExecutor);
+        scheduler.register(contest);
+        contest.getRankingPublisher().start();
+        log.info("Contest {} opened, {} contests hosted", id, contexts.size() + 1);
+        return contest;
+    }
+
+    public void markFinished(ContestContext contest) {
+        if (finishedContests.add(contest.getId())) {
+            log.info("Contest {} finished, {} contests left", contest.getId(), contests - finishedContests.size());
+            if (finishedContests.size() == contests) {
+                allFinished.complete(null);
+            }
+        }
+    }
+
+    public CompletableFuture<Void> whenAllFinished() {
+        return allFinished;
+    }
+
+    public boolean isAllFinished() {
+        return allFinished.isDone();
+    }
+
+    public Collection<ContestContext> getContests() {
+        return contexts.values().stream()
+                .sorted(Comparator.comparingInt(ContestContext::getId))
+                .toList();
+    }
+}
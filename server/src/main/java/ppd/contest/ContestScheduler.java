@@ -0,0 +1,208 @@
+package ppd.contest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.handlers.RecordApplier;
+import ppd.models.ScoreRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ppd.utils.ContestConfig.COMBINING_FLUSH_MILLIS;
+import static ppd.utils.ContestConfig.COMBINING_WRITERS;
+import static ppd.utils.ContestConfig.CONTEST_QUANTUM;
+
+/**
+ * Shares the reader pool and the ranking writers between the hosted contests. Every writer visits the contests in
+ * round robin, applying at most {@code CONTEST_QUANTUM} records of a contest per visit.
+ */
+public class ContestScheduler {
+    private final ExecutorService readerExecutor;
+    private final ScheduledExecutorService publisherScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final int readers;
+    private final List<SharedWriter> writers = new ArrayList<>();
+    // replaced on every change, the writers read it once per round without locking
+    private volatile ContestContext[] contests = new ContestContext[0];
+
+    // bumped on every enqueue, a writer only goes to sleep if nothing was enqueued since it last looked
+    private final AtomicLong workEpoch = new AtomicLong(0);
+    private final AtomicInteger idleWriters = new AtomicInteger(0);
+    private final Lock idleLock = new ReentrantLock();
+    private final Condition workAvailable = idleLock.newCondition();
+    private volatile boolean running = true;
+
+    private static final Logger log = LogManager.getLogger(ContestScheduler.class);
+
+    public ContestScheduler(int readers, int writers) {
+        this.readers = readers;
+        this.readerExecutor = Executors.newFixedThreadPool(readers);
+        for (int i = 0; i < writers; i++) {
+            this.writers.add(new SharedWriter(i));
+        }
+    }
+
+    public void start() {
+        writers.forEach(Thread::start);
+    }
+
+    public int getWriters() {
+        return writers.size();
+    }
+
+    ScheduledExecutorService getPublisherScheduler() {
+        return publisherScheduler;
+    }
+
+    ExecutorService getReaderExecutor() {
+        return readerExecutor;
+    }
+
+    int readerShare() {
+        return Math.max(1, readers / Math.max(1, contests.length));
+    }
+
+    synchronized void register(ContestContext contest) {
+        contest.getQueue().setEnqueueListener(this::signalWork);
+        var registered = Arrays.copyOf(contests, contests.length + 1);
+        registered[contests.length] = contest;
+        contests = registered;
+    }
+
+    synchronized void unregister(ContestContext contest) {
+        contests = Arrays.stream(contests)
+                .filter(registered -> registered != contest)
+                .toArray(ContestContext[]::new);
+    }
+
+    void signalWork() {
+        workEpoch.incrementAndGet();
+        if (idleWriters.get() > 0) {
+            idleLock.lock();
+            try {
+                workAvailable.signalAll();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    private void awaitWork(long observedEpoch) throws InterruptedException {
+        idleWriters.incrementAndGet();
+        idleLock.lock();
+        try {
+            // bounded, combining writers still have to publish on time and notice the end of a contest
+            if (running && workEpoch.get() == observedEpoch) {
+                workAvailable.await(COMBINING_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            idleLock.unlock();
+            idleWriters.decrementAndGet();
+        }
+    }
+
+    // once every contest was drained
+    public void shutdown() {
+        running = false;
+        signalWork();
+        for (var writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        }
+
+        readerExecutor.shutdown();
+        try {
+            if (!readerExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+                readerExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            readerExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        publisherScheduler.shutdown();
+        try {
+            publisherScheduler.awaitTermination(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class SharedWriter extends Thread {
+        private final int index;
+        // per contest state of this writer, only touched by this thread
+        private final Map<ContestContext, RecordApplier> appliers = new HashMap<>();
+        private final ScoreRecord NULL_RECORD = new ScoreRecord(-1, -1, -1);
+        private int round = 0;
+
+        private SharedWriter(int index) {
+            super("contest-writer-" + index);
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running || contests.length > 0) {
+                    var epoch = workEpoch.get();
+                    var visiting = contests;
+                    var applied = 0;
+                    // every writer starts its rounds at another contest, the first one is not always served first
+                    for (int i = 0; i < visiting.length; i++) {
+                        applied += visit(visiting[(index + round + i) % visiting.length]);
+                    }
+                    round++;
+                    if (applied == 0) {
+                        awaitWork(epoch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+            log.info("No more contests to serve, writer {} finished", getName());
+        }
+
+        private int visit(ContestContext contest) {
+            var applier = appliers.get(contest);
+            if (applier == null) {
+                if (contest.isFinishedBy(index)) {
+                    return 0;
+                }
+                applier = new RecordApplier(contest.getRankingList(), contest.getAdmission(),
+                        COMBINING_WRITERS ? contest.getFlushBarrier() : null, index);
+                appliers.put(contest, applier);
+            }
+
+            var applied = 0;
+            while (applied < CONTEST_QUANTUM) {
+                var record = contest.getQueue().tryDequeue();
+                if (record == null) {
+                    break;
+                }
+                if (record.equals(NULL_RECORD)) {
+                    applier.finish();
+                    appliers.remove(contest);
+                    contest.writerFinished(index, applier.getAppliedDigest());
+                    return applied;
+                }
+                applier.apply(record);
+                applied++;
+            }
+            applier.flushIfDue();
+            return applied;
+        }
+    }
+}
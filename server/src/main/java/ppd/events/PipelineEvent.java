@@ -0,0 +1,22 @@
+package ppd.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the flight recorder events of the pipeline, with the country of the request and the entries it handled.
+ */
+@Category({"Contest", "Pipeline"})
+public abstract class PipelineEvent extends Event {
+    @Label("Country")
+    protected int country;
+
+    @Label("Batch Size")
+    protected int batchSize;
+
+    public void set(int country, int batchSize) {
+        this.country = country;
+        this.batchSize = batchSize;
+    }
+}
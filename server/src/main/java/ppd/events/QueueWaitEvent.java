@@ -0,0 +1,20 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("ppd.QueueWaitEvent")
+@Label("Queue Wait")
+@Description("A reader blocked on a full processing queue or a writer blocked on an empty one")
+@Threshold("20 us")
+public class QueueWaitEvent extends PipelineEvent {
+    @Label("Producer")
+    @Description("True for a reader waiting to enqueue, false for a writer waiting to dequeue")
+    protected boolean producer;
+
+    public void setProducer(boolean producer) {
+        this.producer = producer;
+    }
+}
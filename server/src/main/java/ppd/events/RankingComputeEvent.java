@@ -0,0 +1,34 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+@Name("ppd.RankingComputeEvent")
+@Label("Ranking Compute")
+@Description("Computing a country or participant ranking from the ranking store, the batch size is its length")
+public class RankingComputeEvent extends PipelineEvent {
+    @Label("Participant Ranking")
+    protected boolean participantRanking;
+
+    public void setParticipantRanking(boolean participantRanking) {
+        this.participantRanking = participantRanking;
+    }
+
+    // country 0 when the ranking is shared by every country
+    public static <T> List<T> timed(int country, boolean participantRanking, Supplier<List<T>> computation) {
+        var event = new RankingComputeEvent();
+        event.begin();
+        var ranking = computation.get();
+        event.end();
+        if (event.shouldCommit()) {
+            event.set(country, ranking.size());
+            event.setParticipantRanking(participantRanking);
+            event.commit();
+        }
+        return ranking;
+    }
+}
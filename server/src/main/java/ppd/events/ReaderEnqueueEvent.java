@@ -0,0 +1,11 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ppd.ReaderEnqueueEvent")
+@Label("Reader Enqueue")
+@Description("A reader moving the submissions of a request into the processing queue")
+public class ReaderEnqueueEvent extends PipelineEvent {
+}
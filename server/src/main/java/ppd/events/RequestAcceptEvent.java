@@ -0,0 +1,11 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ppd.RequestAcceptEvent")
+@Label("Request Accept")
+@Description("From the accepted connection to its worker thread running")
+public class RequestAcceptEvent extends PipelineEvent {
+}
@@ -0,0 +1,11 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ppd.RequestDeserializeEvent")
+@Label("Request Deserialize")
+@Description("Opening the streams of a connection and reading its request")
+public class RequestDeserializeEvent extends PipelineEvent {
+}
@@ -0,0 +1,11 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("ppd.ResponseWriteEvent")
+@Label("Response Write")
+@Description("Serializing and flushing a response to the client")
+public class ResponseWriteEvent extends PipelineEvent {
+}
@@ -0,0 +1,13 @@
+package ppd.events;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("ppd.WriterApplyEvent")
+@Label("Writer Apply")
+@Description("A writer applying a dequeued record to the ranking store")
+@Threshold("20 us")
+public class WriterApplyEvent extends PipelineEvent {
+}
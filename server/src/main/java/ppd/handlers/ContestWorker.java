@@ -3,105 +3,148 @@ package ppd.handlers;
 import lombok.SneakyThrows;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import ppd.models.ScoreProcessingQueue;
-import ppd.models.SynchronizedRankingLinkedList;
+import ppd.contest.ContestContext;
+import ppd.contest.ContestRegistry;
+import ppd.events.*;
+import ppd.models.SubmissionDeduplicator;
 import ppd.request.Request;
+import ppd.request.RequestType;
+import ppd.request.ScoreSubmission;
+import ppd.request.SubmissionStream;
 import ppd.response.CountryScore;
 import ppd.response.ParticipantScore;
+import ppd.response.RankingStream;
 import ppd.response.Response;
 import ppd.response.ResponseType;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static ppd.utils.ContestConfig.DELTA_T;
+import static ppd.utils.ContestConfig.EXTERNAL_SORT;
+import static ppd.utils.ContestConfig.THROTTLE_RETRY_MILLIS;
 
 public class ContestWorker extends Thread {
     private final Socket clientSocket;
-    private final ServerSocket serverSocket;
 
-    private final ExecutorService readerExecutor;
     private final ExecutorService rankingExecutor;
+    private final ExecutorService responseExecutor;
 
-    private final ScoreProcessingQueue queue;
-    private final SynchronizedRankingLinkedList rankingList;
+    private final ContestRegistry registry;
+    private final TrafficRecorder trafficRecorder;
+    // the contest of the request, known once it is read
+    private ContestContext contest;
 
     private static final Logger log = LogManager.getLogger(ContestWorker.class);
 
-    private final CountDownLatch finalRankingReadyLatch;
-    private final AtomicInteger remainingClients;
-    private final AtomicInteger countriesLeft;
-    private final Set<Integer> finishedCountries;
-
     private volatile List<CountryScore> cachedPartialRanking = null;
     private volatile long lastComputedTime = 0L;
     private final Object cacheLock = new Object();
 
+    // started when the connection is accepted, the worker is created right after
+    private final RequestAcceptEvent acceptEvent = new RequestAcceptEvent();
+
     public ContestWorker(Socket clientSocket,
-                         ServerSocket socket,
-                         ExecutorService readerExecutor,
                          ExecutorService rankingExecutor,
-                         AtomicInteger remainingClients,
-                         AtomicInteger countriesLeft,
-                         Set<Integer> finishedCountries,
-                         CountDownLatch finalRankingReadyLatch,
-                         ScoreProcessingQueue queue,
-                         SynchronizedRankingLinkedList rankingList) {
+                         ExecutorService responseExecutor,
+                         ContestRegistry registry,
+                         TrafficRecorder trafficRecorder) {
         this.clientSocket = clientSocket;
-        this.serverSocket = socket;
-        this.readerExecutor = readerExecutor;
         this.rankingExecutor = rankingExecutor;
-        this.finalRankingReadyLatch = finalRankingReadyLatch;
-        this.remainingClients = remainingClients;
-        this.countriesLeft = countriesLeft;
-        this.finishedCountries = finishedCountries;
-        this.queue = queue;
-        this.rankingList = rankingList;
+        this.responseExecutor = responseExecutor;
+        this.registry = registry;
+        this.trafficRecorder = trafficRecorder;
+        acceptEvent.begin();
     }
 
 
     @Override
     public void run() {
-        log.info("Worker started for connected client client");
-        try (var out = new ObjectOutputStream(clientSocket.getOutputStream());
-             var in = new ObjectInputStream(clientSocket.getInputStream())) {
+        acceptEvent.end();
+        log.debug("Worker started for connected client");
+        try {
+            var deserializeEvent = new RequestDeserializeEvent();
+            deserializeEvent.begin();
+            var out = new ObjectOutputStream(clientSocket.getOutputStream());
+            var in = new ObjectInputStream(clientSocket.getInputStream());
 
             var request = (Request) in.readObject();
+            deserializeEvent.end();
+            commit(acceptEvent, request);
+            commit(deserializeEvent, request);
+
+            contest = registry.get(request.getContest());
+            if (contest == null) {
+                log.error("Request for unknown contest {}", request.getContest());
+                sendErrorResponse(out, "Unknown contest: " + request.getContest());
+                closeConnection();
+                return;
+            }
+
+            if (request.getType() != RequestType.SCORE_SUBMISSION_STREAM) {
+                // a streamed body is only known once it is read, it is recorded then
+                trafficRecorder.record(request);
+            }
             log.info("Received request: {}", request);
 
-            handleRequest(request, out);
-            clientSocket.close();
+            // the response may be written after this thread ends, the connection is closed once it is
+            handleRequest(request, in, out).whenComplete((ignored, error) -> closeConnection());
         } catch (IOException | ClassNotFoundException e) {
             log.error(e);
+            closeConnection();
+        }
+    }
+
+    private static void commit(PipelineEvent event, Request request) {
+        if (event.shouldCommit()) {
+            event.set(request.getCountry(), request.getSubmissionCount());
+            event.commit();
+        }
+    }
+
+    private void writeResponse(Request request, ObjectOutputStream out, Response response) throws IOException {
+        var event = new ResponseWriteEvent();
+        event.begin();
+        out.writeObject(response);
+        out.flush();
+        event.end();
+        commit(event, request);
+    }
+
+    private void closeConnection() {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            log.error(e);
         }
     }
 
-    private void handleRequest(Request request, ObjectOutputStream out) throws IOException {
+    private CompletableFuture<Void> handleRequest(Request request, ObjectInputStream in, ObjectOutputStream out) {
+        if (!SubmissionDeduplicator.isValidSequence(request)) {
+            log.error("Invalid sequence number {} from client {}", request.getSequence(), request.getCountry());
+            sendErrorResponse(out, "Invalid sequence number: " + request.getSequence());
+            return CompletableFuture.completedFuture(null);
+        }
         switch (request.getType()) {
-            case SCORE_SUBMISSION -> {
-                log.info("Received score submission request: {}", request);
-                processScoreSubmissions(request, out);
-            }
-            case PARTIAL_COUNTRY_RANKING -> {
-                log.info("Received partial country ranking request: {}", request);
-                processPartialCountryRanking(request, out);
-            }
+            case SCORE_SUBMISSION -> processScoreSubmissions(request, out);
+            case SCORE_SUBMISSION_STREAM -> processStreamedSubmissions(request, in, out);
+            case PARTIAL_COUNTRY_RANKING -> processPartialCountryRanking(request, out);
             case FINAL_PARTICIPANT_RANKING -> {
-                log.info("Received final participant ranking request: {}", request);
-                processFinalParticipantRanking(request, out);
+                return processFinalParticipantRanking(request, out);
             }
+            case SUBSCRIBE_COUNTRY_RANKING -> processRankingSubscription(request, out);
+            case AS_OF_RANKING -> processAsOfRanking(request, out);
             default -> log.error("Invalid request type: {}", request.getType());
         }
+        return CompletableFuture.completedFuture(null);
     }
 
     @SneakyThrows
@@ -116,34 +159,134 @@ public class ContestWorker extends Thread {
     }
 
     private void signalCountrySubmissionsFinished(Request request) {
-        if (!finishedCountries.contains(request.getCountry())) {
-            finishedCountries.add(request.getCountry());
-            countriesLeft.decrementAndGet();
-            finalRankingReadyLatch.countDown();
-        }
+        contest.markCountryFinished(request.getCountry());
     }
 
-    private void signalClientFinished(Request request) {
-        if (finishedCountries.contains(request.getCountry())) {
-            log.info("Client {} finished", request.getCountry());
-            remainingClients.decrementAndGet();
-            log.info("Clients left: {}", remainingClients.get());
+    private void signalClientFinished(Request request) throws IOException {
+        var clientsLeft = contest.getLifecycle().markClientFinished(request.getCountry());
+        log.info("Client {} finished, clients left: {}", request.getCountry(), clientsLeft);
+
+        if (clientsLeft == 0) {
+            registry.markFinished(contest);
         }
     }
 
     @SneakyThrows
     private void processScoreSubmissions(Request request, ObjectOutputStream out) {
-        var submissions = request.getSubmissions();
-        var country = request.getCountry();
-        readerExecutor.submit(new SubmissionsReader(submissions, country, queue));
+        var records = request.getSubmissionCount();
+        // checked before deduplication, a throttled batch is resent with the same sequence and must not be dropped then
+        if (!contest.getAdmission().tryAdmit(records)) {
+            log.info("Score submissions {} of client {} throttled", request.getSequence(), request.getCountry());
+            writeResponse(request, out, Response.builder()
+                    .type(ResponseType.THROTTLED)
+                    .message("Too many score submissions pending, retry later")
+                    .retryAfterMillis(THROTTLE_RETRY_MILLIS)
+                    .build());
+            return;
+        }
+
+        var message = "Score submissions received successfully";
+        if (contest.getDeduplicator().accept(request)) {
+            var submissions = request.getSubmissions();
+            var country = request.getCountry();
+            contest.submitReader(country, new SubmissionsReader(submissions, country, contest.getQueue()));
+        } else {
+            // a retry of a batch already in the pipeline, acknowledged again so that the client stops resending it
+            log.info("Duplicate score submissions {} of client {} ignored", request.getSequence(), request.getCountry());
+            contest.getAdmission().release(records);
+            message = "Duplicate score submissions ignored";
+        }
 
         var response = Response.builder()
                 .type(ResponseType.SUCCESS)
-                .message("Score submissions received successfully")
+                .message(message)
+                .credits(contest.getAdmission().credits())
                 .build();
 
-        out.writeObject(response);
-        out.flush();
+        writeResponse(request, out, response);
+    }
+
+    /**
+     * Enqueues the records on this connection's thread as they are decoded, a full queue pauses the client.
+     */
+    private void processStreamedSubmissions(Request request, ObjectInputStream in, ObjectOutputStream out) {
+        var records = request.getSubmissionCount();
+        var country = request.getCountry();
+        var deduplicator = contest.getDeduplicator();
+        var alreadyEnqueued = deduplicator.beginStream(request);
+        var enqueued = Math.max(alreadyEnqueued, 0);
+        var admitted = 0;
+        try {
+            // a resumed client waits for an answer before sending the body, the others already sent it whole
+            var bodyRecords = request.isResumeStream() ? 0 : records;
+            if (alreadyEnqueued == SubmissionDeduplicator.DUPLICATE) {
+                SubmissionStream.skip(in, bodyRecords);
+                log.info("Duplicate score submissions {} of client {} ignored", request.getSequence(), country);
+                writeResponse(request, out, Response.builder()
+                        .type(ResponseType.SUCCESS)
+                        .message("Duplicate score submissions ignored")
+                        .credits(contest.getAdmission().credits())
+                        .build());
+                return;
+            }
+            if (alreadyEnqueued == SubmissionDeduplicator.IN_PROGRESS
+                    || !contest.getAdmission().tryAdmit(records - alreadyEnqueued)) {
+                SubmissionStream.skip(in, bodyRecords);
+                log.info("Score submissions {} of client {} throttled", request.getSequence(), country);
+                writeResponse(request, out, Response.builder()
+                        .type(ResponseType.THROTTLED)
+                        .message("Too many score submissions pending, retry later")
+                        .retryAfterMillis(THROTTLE_RETRY_MILLIS)
+                        .build());
+                return;
+            }
+            admitted = records - alreadyEnqueued;
+            if (request.isResumeStream()) {
+                writeResponse(request, out, Response.builder()
+                        .type(ResponseType.CONTINUE)
+                        .resumeFrom(alreadyEnqueued)
+                        .build());
+            } else {
+                SubmissionStream.skip(in, alreadyEnqueued);
+            }
+
+            // the records are only kept when they have to be written to the traffic trace
+            var captured = trafficRecorder.isRecording() ? new ArrayList<ScoreSubmission>(records) : null;
+            var event = new ReaderEnqueueEvent();
+            event.begin();
+            for (; enqueued < records; enqueued++) {
+                var id = in.readInt();
+                var points = in.readInt();
+                contest.getQueue().enqueue(id, country, points);
+                if (captured != null) {
+                    captured.add(new ScoreSubmission(id, points));
+                }
+            }
+            event.end();
+            commit(event, request);
+            if (captured != null) {
+                request.setSubmissions(captured);
+                trafficRecorder.record(request);
+            }
+
+            writeResponse(request, out, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .message("Score submissions received successfully")
+                    .credits(contest.getAdmission().credits())
+                    .build());
+        } catch (IOException e) {
+            log.error("Streamed score submissions {} of client {} interrupted after {} of {} records: {}",
+                    request.getSequence(), country, enqueued, records, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(e);
+        } finally {
+            if (alreadyEnqueued >= 0) {
+                // the records never read will not reach the writers
+                contest.getAdmission().release(admitted - (enqueued - alreadyEnqueued));
+                deduplicator.endStream(request, enqueued);
+            }
+        }
     }
 
     private void processPartialCountryRanking(Request request, ObjectOutputStream out) {
@@ -152,25 +295,24 @@ public class ContestWorker extends Thread {
             synchronized (cacheLock) {
                 if (cachedPartialRanking != null && (currentTime - lastComputedTime) <= DELTA_T) {
                     log.info("Sending cached partial country ranking...");
-                    var response = Response.builder()
+                    var response = ResponseCompression.compressIfAccepted(request, Response.builder()
                             .type(ResponseType.SUCCESS)
                             .countryRanking(cachedPartialRanking)
-                            .build();
+                            .build());
 
-                    out.writeObject(response);
-                    out.flush();
+                    writeResponse(request, out, response);
                 } else {
 
                     log.info("Computing partial country ranking...");
-                    Future<List<CountryScore>> rankingComputation = rankingExecutor.submit(rankingList::getCountryRanking);
+                    Future<List<CountryScore>> rankingComputation = rankingExecutor.submit(
+                            () -> RankingComputeEvent.timed(request.getCountry(), false, contest.getRankingList()::getCountryRanking));
                     var partialRanking = rankingComputation.get();
-                    var response = Response.builder()
+                    var response = ResponseCompression.compressIfAccepted(request, Response.builder()
                             .type(ResponseType.SUCCESS)
                             .countryRanking(partialRanking)
-                            .build();
+                            .build());
 
-                    out.writeObject(response);
-                    out.flush();
+                    writeResponse(request, out, response);
 
                     cachedPartialRanking = partialRanking;
                     lastComputedTime = currentTime;
@@ -185,30 +327,137 @@ public class ContestWorker extends Thread {
         }
     }
 
-    private void processFinalParticipantRanking(Request request, ObjectOutputStream out) {
+    private void processRankingSubscription(Request request, ObjectOutputStream out) {
         try {
-            finalRankingReadyLatch.await();
+            // the connection stays open, the updates queued by the publisher are written until the final ranking
+            var subscription = contest.getRankingPublisher()
+                    .subscribe(request.getCountry(), ResponseCompression.accepts(request), out, clientSocket);
+            subscription.deliver();
+            log.info("Ranking subscription closed for client: {}", request.getCountry());
+        } catch (InterruptedException e) {
+            log.error(e);
+        }
+    }
+
+    // snapshots are immutable, read here without going through the ranking executor
+    private void processAsOfRanking(Request request, ObjectOutputStream out) {
+        var history = contest.getRankingHistory();
+        if (history == null) {
+            sendErrorResponse(out, "Ranking history disabled");
+            return;
+        }
+        var snapshot = history.asOf(request.getAsOfMillis());
+        if (snapshot == null) {
+            sendErrorResponse(out, "No ranking history at " + request.getAsOfMillis());
+            return;
+        }
+
+        try {
+            var response = ResponseCompression.compressIfAccepted(request, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .countryRanking(RankingComputeEvent.timed(request.getCountry(), false, snapshot::getCountryRanking))
+                    .participantRanking(RankingComputeEvent.timed(request.getCountry(), true, snapshot::getParticipantRanking))
+                    .asOfMillis(snapshot.getTimestampMillis())
+                    .build());
+            writeResponse(request, out, response);
+            log.info("Rankings as of {} sent to client {} from the snapshot of {}",
+                    request.getAsOfMillis(), request.getCountry(), snapshot.getTimestampMillis());
+        } catch (IOException e) {
+            log.error(e);
+            sendErrorResponse(out, "Error processing ranking history request");
+        }
+    }
+
+    /**
+     * Registers the response as a continuation of the final ranking, no thread waits for the other countries to finish.
+     */
+    private CompletableFuture<Void> processFinalParticipantRanking(Request request, ObjectOutputStream out) {
+        // a client reading its partial rankings from a replica only tells the primary it finished submitting here
+        signalCountrySubmissionsFinished(request);
+        var waitStart = contest.getFinalRankingMetrics().waitStarted();
+        log.info("Final ranking request of client {} registered, {} requests waiting",
+                request.getCountry(), contest.getFinalRankingMetrics().getWaiting());
+        if (request.isStreamRanking()) {
+            return streamFinalParticipantRanking(request, out, waitStart);
+        }
 
-            Future<List<ParticipantScore>> rankingComputation = rankingExecutor.submit(rankingList::getParticipantRanking);
-            var finalRanking = rankingComputation.get();
-            var response = Response.builder()
+        return contest.getLifecycle().finalRanking()
+                .thenCompose(finalRanking -> finalRankingResponse(request, finalRanking))
+                .handleAsync((response, error) -> {
+                    contest.getFinalRankingMetrics().waitEnded(waitStart);
+                    if (error != null) {
+                        log.error(error);
+                        sendErrorResponse(out, "Error processing final participant ranking");
+                        return null;
+                    }
+                    sendFinalParticipantRanking(request, out, response);
+                    return null;
+                }, responseExecutor);
+    }
+
+    private CompletableFuture<Response> finalRankingResponse(Request request, List<ParticipantScore> finalRanking) {
+        if (ResponseCompression.accepts(request) && ResponseCompression.isWorthCompressing(finalRanking)) {
+            // every country downloads the same list, it is encoded once for all of them
+            return contest.getLifecycle().encodedFinalRanking().thenApply(encoded -> Response.builder()
                     .type(ResponseType.SUCCESS)
-                    .participantRanking(finalRanking)
-                    .build();
+                    .encodedParticipantRanking(encoded)
+                    .build());
+        }
+        return CompletableFuture.completedFuture(Response.builder()
+                .type(ResponseType.SUCCESS)
+                .participantRanking(finalRanking)
+                .build());
+    }
 
-            out.writeObject(response);
-            out.flush();
+    private void sendFinalParticipantRanking(Request request, ObjectOutputStream out, Response response) {
+        try {
+            writeResponse(request, out, response);
             log.info("Final participant ranking sent to client: {}", request.getCountry());
 
             signalClientFinished(request);
-
-            if (remainingClients.get() == 0) {
-                serverSocket.close();
-            }
-        } catch (IOException | ExecutionException | InterruptedException e) {
+        } catch (IOException e) {
             log.error(e);
             sendErrorResponse(out, "Error processing final participant ranking");
         }
+    }
+
+    private CompletableFuture<Void> streamFinalParticipantRanking(Request request, ObjectOutputStream out, long waitStart) {
+        CompletableFuture<RankingSource> ranking = EXTERNAL_SORT
+                ? contest.getLifecycle().sortedFinalRanking().thenApply(sorter -> stream ->
+                        sorter.merge((id, country, score) -> stream.write(id, score, country)))
+                : contest.getLifecycle().finalRanking().thenApply(finalRanking -> stream -> {
+                    for (var participant : finalRanking) {
+                        stream.write(participant.id(), participant.score(), participant.country());
+                    }
+                });
+
+        return ranking.handleAsync((source, error) -> {
+            contest.getFinalRankingMetrics().waitEnded(waitStart);
+            if (error != null) {
+                log.error(error);
+                sendErrorResponse(out, "Error processing final participant ranking");
+                return null;
+            }
+            try {
+                writeResponse(request, out, Response.builder()
+                        .type(ResponseType.SUCCESS)
+                        .streamed(true)
+                        .build());
+                var stream = new RankingStream(out);
+                source.writeTo(stream);
+                stream.finish();
+                log.info("Final participant ranking streamed to client: {}", request.getCountry());
+
+                signalClientFinished(request);
+            } catch (IOException e) {
+                // the response is already under way, the client sees the stream end early
+                log.error("Error streaming final participant ranking to client {}: {}", request.getCountry(), e.getMessage());
+            }
+            return null;
+        }, responseExecutor);
+    }
 
+    private interface RankingSource {
+        void writeTo(RankingStream stream) throws IOException;
     }
 }
@@ -0,0 +1,247 @@
+package ppd.handlers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.events.RankingComputeEvent;
+import ppd.models.ContestLifecycle;
+import ppd.models.RankingStore;
+import ppd.response.ParticipantScore;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static ppd.utils.ContestConfig.DELTA_T;
+import static ppd.utils.ContestConfig.EXTERNAL_SORT;
+import static ppd.utils.ContestConfig.SUBSCRIPTION_OUTBOX_CAPACITY;
+
+/**
+ * Pushes country ranking updates to the subscribed connections every {@code DELTA_T} milliseconds, then the final
+ * participant ranking, unless it is sorted externally and the clients request it streamed.
+ * The publisher only queues the updates, every subscription is written by its own connection; a subscriber with
+ * {@code SUBSCRIPTION_OUTBOX_CAPACITY} updates still unwritten is disconnected.
+ */
+public class RankingPublisher {
+    private final RankingStore rankingList;
+    private final ExecutorService rankingExecutor;
+    private final ContestLifecycle lifecycle;
+
+    private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+    // shared by the publishers of every contest
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> publishing;
+
+    // only touched by the scheduler thread
+    private long lastPublishedUpdates = -1;
+    private PublishedUpdate lastUpdate = null;
+    private boolean computing = false;
+    private volatile PublishedUpdate finalUpdate = null;
+    private volatile boolean finished = false;
+
+    private static final Logger log = LogManager.getLogger(RankingPublisher.class);
+
+    public RankingPublisher(RankingStore rankingList, ExecutorService rankingExecutor, ContestLifecycle lifecycle,
+                            ScheduledExecutorService scheduler) {
+        this.rankingList = rankingList;
+        this.scheduler = scheduler;
+        this.rankingExecutor = rankingExecutor;
+        this.lifecycle = lifecycle;
+    }
+
+    public void start() {
+        publishing = scheduler.scheduleAtFixedRate(this::publish, DELTA_T, DELTA_T, TimeUnit.MILLISECONDS);
+        if (EXTERNAL_SORT) {
+            lifecycle.whenSubmissionsFinished().thenRunAsync(() -> finish(null), scheduler);
+        } else {
+            lifecycle.finalRanking().thenAcceptAsync(this::publishFinalRanking, scheduler);
+        }
+    }
+
+    public void shutdown() {
+        publishing.cancel(false);
+        subscribers.forEach(Subscription::close);
+    }
+
+    /**
+     * Registers a connection for updates, it receives the latest ranking on the next publishing tick.
+     * The updates are written by the caller, see {@link Subscription#deliver()}.
+     */
+    public Subscription subscribe(int country, boolean compressed, ObjectOutputStream out, Closeable connection) {
+        var subscription = new Subscription(country, compressed, out, connection);
+        subscribers.add(subscription);
+
+        // the final ranking may have been published in between, nobody else would close the subscription then
+        if (finished) {
+            subscribers.remove(subscription);
+            if (finalUpdate != null) {
+                subscription.offer(finalUpdate);
+            }
+            subscription.close();
+        }
+        return subscription;
+    }
+
+    private void publish() {
+        if (computing || subscribers.isEmpty() || lifecycle.isSubmissionFinished()) {
+            return;
+        }
+
+        var updates = rankingList.updateCount();
+        if (updates == lastPublishedUpdates) {
+            // nothing changed, only the subscribers that joined since the last tick need the current ranking
+            fanOut(lastUpdate, true);
+            return;
+        }
+
+        try {
+            computing = true;
+            CompletableFuture.supplyAsync(() -> RankingComputeEvent.timed(0, false, rankingList::getCountryRanking),
+                            rankingExecutor)
+                    .whenCompleteAsync((ranking, error) -> {
+                        computing = false;
+                        if (error != null) {
+                            log.error("Error publishing ranking update: {}", error.getMessage());
+                            return;
+                        }
+                        lastPublishedUpdates = updates;
+                        lastUpdate = new PublishedUpdate(Response.builder()
+                                .type(ResponseType.SUCCESS)
+                                .message("Country ranking update")
+                                .countryRanking(ranking)
+                                .build());
+                        if (!finished) {
+                            fanOut(lastUpdate, false);
+                        }
+                    }, scheduler);
+        } catch (RejectedExecutionException e) {
+            computing = false;
+            log.error("Error publishing ranking update: {}", e.getMessage());
+        }
+    }
+
+    private void publishFinalRanking(List<ParticipantScore> finalRanking) {
+        finish(new PublishedUpdate(Response.builder()
+                .type(ResponseType.SUCCESS)
+                .message("Final participant ranking")
+                .participantRanking(finalRanking)
+                .build()));
+    }
+
+    private void finish(PublishedUpdate update) {
+        finalUpdate = update;
+        finished = true;
+        if (update != null) {
+            fanOut(update, false);
+            log.info("Final ranking pushed to {} subscribers", subscribers.size());
+        }
+
+        subscribers.forEach(Subscription::close);
+        subscribers.clear();
+    }
+
+    private void fanOut(PublishedUpdate update, boolean onlyNewSubscribers) {
+        for (var subscription : subscribers) {
+            if (onlyNewSubscribers && subscription.updated) {
+                continue;
+            }
+            if (subscription.disconnected) {
+                log.info("Subscriber for country {} disconnected", subscription.country);
+                subscribers.remove(subscription);
+            } else if (!subscription.offer(update)) {
+                log.warn("Subscriber for country {} lagging {} updates behind, disconnected",
+                        subscription.country, SUBSCRIPTION_OUTBOX_CAPACITY);
+                subscribers.remove(subscription);
+                subscription.disconnect();
+            }
+        }
+    }
+
+    /**
+     * A computed update, its compressed form is only built if a subscriber accepts compression, then shared.
+     */
+    private static class PublishedUpdate {
+        private final Response response;
+        private Response compressed = null;
+
+        private PublishedUpdate(Response response) {
+            this.response = response;
+        }
+
+        private synchronized Response forSubscriber(boolean compression) {
+            if (!compression) {
+                return response;
+            }
+            if (compressed == null) {
+                compressed = ResponseCompression.compress(response);
+            }
+            return compressed;
+        }
+    }
+
+    public static class Subscription {
+        private static final PublishedUpdate END = new PublishedUpdate(null);
+
+        private final int country;
+        private final boolean compressed;
+        private final ObjectOutputStream out;
+        private final Closeable connection;
+        private final BlockingQueue<PublishedUpdate> outbox = new ArrayBlockingQueue<>(SUBSCRIPTION_OUTBOX_CAPACITY + 1);
+        private volatile boolean disconnected = false;
+        private boolean updated = false;
+
+        private Subscription(int country, boolean compressed, ObjectOutputStream out, Closeable connection) {
+            this.country = country;
+            this.compressed = compressed;
+            this.out = out;
+            this.connection = connection;
+        }
+
+        // one slot is kept for the end of the subscription
+        private boolean offer(PublishedUpdate update) {
+            updated = true;
+            return outbox.remainingCapacity() > 1 && outbox.offer(update);
+        }
+
+        private void close() {
+            if (!outbox.offer(END)) {
+                disconnect();
+            }
+        }
+
+        private void disconnect() {
+            disconnected = true;
+            outbox.offer(END);
+            try {
+                // a write blocked on the connection fails at once
+                connection.close();
+            } catch (IOException e) {
+                log.debug("Error closing subscription of country {}: {}", country, e.getMessage());
+            }
+        }
+
+        /**
+         * Writes the queued updates until the subscription is closed or disconnected.
+         */
+        public void deliver() throws InterruptedException {
+            while (true) {
+                var update = outbox.take();
+                if (update == END || disconnected) {
+                    return;
+                }
+                try {
+                    // the stream would otherwise keep a back-reference to every pushed object
+                    out.reset();
+                    out.writeObject(update.forSubscriber(compressed));
+                    out.flush();
+                } catch (IOException e) {
+                    disconnected = true;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -2,36 +2,58 @@ package ppd.handlers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import ppd.models.ScoreProcessingQueue;
-import ppd.models.ScoreRecord;
-import ppd.models.SynchronizedRankingLinkedList;
+import ppd.models.*;
 
+import java.util.concurrent.TimeUnit;
 
+import static ppd.utils.ContestConfig.COMBINING_FLUSH_MILLIS;
+
+/**
+ * Writer thread dedicated to a single queue, the writers shared by several contests are run by the
+ * {@link ppd.contest.ContestScheduler}.
+ */
 public class RankingWriter extends Thread {
     private final ScoreProcessingQueue queue;
-    private final SynchronizedRankingLinkedList rankingList;
+    private final RecordApplier applier;
     private final ScoreRecord NULL_RECORD = new ScoreRecord(-1, -1, -1);
 
     private static final Logger log = LogManager.getLogger(RankingWriter.class);
 
-    public RankingWriter(ScoreProcessingQueue queue, SynchronizedRankingLinkedList rankingList) {
+    public RankingWriter(ScoreProcessingQueue queue, RankingStore rankingList, AdmissionController admission) {
+        this(queue, rankingList, admission, null, -1);
+    }
+
+    public RankingWriter(ScoreProcessingQueue queue, RankingStore rankingList, AdmissionController admission,
+                         WriterFlushBarrier flushBarrier, int index) {
         this.queue = queue;
-        this.rankingList = rankingList;
+        this.applier = new RecordApplier(rankingList, admission, flushBarrier, index);
+    }
+
+    public long getAppliedDigest() {
+        return applier.getAppliedDigest();
     }
 
     @Override
     public void run() {
         try {
             while (true) {
-                var record = queue.dequeue();
-                if (record.equals(NULL_RECORD)) {
+                // a combining writer wakes up regularly to publish what it holds
+                var record = applier.isCombining()
+                        ? queue.poll(COMBINING_FLUSH_MILLIS, TimeUnit.MILLISECONDS)
+                        : queue.dequeue();
+                if (record != null && record.equals(NULL_RECORD)) {
                     log.info("No more records to process, writer {} finished", Thread.currentThread().getName());
                     break;
                 }
-                rankingList.addOrUpdate(record.getId(), record.getCountry(), record.getScore());
+                if (record != null) {
+                    applier.apply(record);
+                }
+                applier.flushIfDue();
             }
         } catch (InterruptedException e) {
             log.error(e);
+        } finally {
+            applier.finish();
         }
     }
 }
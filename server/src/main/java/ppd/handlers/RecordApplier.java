@@ -0,0 +1,122 @@
+package ppd.handlers;
+
+import ppd.events.WriterApplyEvent;
+import ppd.models.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static ppd.utils.ContestConfig.COMBINING_FLUSH_MILLIS;
+import static ppd.utils.ContestConfig.COMBINING_FLUSH_SIZE;
+
+/**
+ * Applies the records of one queue to its ranking store for a single writer thread. In combining mode the score
+ * deltas are accumulated in a {@link ScoreDeltaMap} until flushed, frauds are applied immediately.
+ */
+public class RecordApplier {
+    private final RankingStore rankingList;
+    private final AdmissionController admission;
+    // digest of the records applied, only read once the writer finished
+    private long appliedDigest = 0;
+
+    private final WriterFlushBarrier flushBarrier;
+    private final int index;
+    private final ScoreDeltaMap deltas;
+    private int pendingRecords = 0;
+    private long flushedGeneration = 0;
+    private long lastFlush = System.nanoTime();
+
+    // a combining applier if a barrier is given
+    public RecordApplier(RankingStore rankingList, AdmissionController admission, WriterFlushBarrier flushBarrier, int index) {
+        this.rankingList = rankingList;
+        this.admission = admission;
+        this.flushBarrier = flushBarrier;
+        this.index = index;
+        this.deltas = flushBarrier == null ? null : new ScoreDeltaMap(COMBINING_FLUSH_SIZE);
+    }
+
+    public boolean isCombining() {
+        return deltas != null;
+    }
+
+    public long getAppliedDigest() {
+        return appliedDigest;
+    }
+
+    public void apply(ScoreRecord record) {
+        appliedDigest += RankingDigest.entryHash(record.getId(), record.getCountry(), record.getScore());
+        if (deltas == null) {
+            applyDirectly(record);
+        } else {
+            combine(record);
+        }
+    }
+
+    private void applyDirectly(ScoreRecord record) {
+        var event = new WriterApplyEvent();
+        event.begin();
+        rankingList.addOrUpdate(record.getId(), record.getCountry(), record.getScore());
+        event.end();
+        admission.release(1);
+        if (event.shouldCommit()) {
+            event.set(record.getCountry(), 1);
+            event.commit();
+        }
+    }
+
+    private void combine(ScoreRecord record) {
+        if (record.getScore() == -1) {
+            // the store drops every later update of a fraud, including the deltas still held here
+            rankingList.addOrUpdate(record.getId(), record.getCountry(), record.getScore());
+            admission.release(1);
+            return;
+        }
+        if (!deltas.add(record.getId(), record.getCountry(), record.getScore())) {
+            flush();
+            deltas.add(record.getId(), record.getCountry(), record.getScore());
+        }
+        pendingRecords++;
+    }
+
+    // if a reader asked for them, the map is full or the flush period elapsed
+    public void flushIfDue() {
+        if (deltas == null) {
+            return;
+        }
+        var requested = flushBarrier.requested();
+        var now = System.nanoTime();
+        if (requested > flushedGeneration || deltas.isFull()
+                || now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(COMBINING_FLUSH_MILLIS)) {
+            flush();
+            lastFlush = now;
+            if (requested > flushedGeneration) {
+                flushedGeneration = requested;
+                flushBarrier.flushed(index, requested);
+            }
+        }
+    }
+
+    // readers no longer wait for this writer afterwards
+    public void finish() {
+        if (deltas != null) {
+            flush();
+            flushBarrier.finished(index);
+        }
+    }
+
+    private void flush() {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        var event = new WriterApplyEvent();
+        event.begin();
+        var participants = deltas.size();
+        deltas.drain(rankingList::addOrUpdate);
+        event.end();
+        admission.release(pendingRecords);
+        pendingRecords = 0;
+        if (event.shouldCommit()) {
+            event.set(0, participants);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ppd.handlers;
+
+import ppd.request.Request;
+import ppd.response.Response;
+import ppd.utils.RankingCodec;
+
+import java.util.List;
+
+import static ppd.utils.ContestConfig.COMPRESSION_MIN_ENTRIES;
+
+/**
+ * Response compression negotiated per connection: rankings are only encoded when the request accepts compression
+ * and the ranking has at least {@code COMPRESSION_MIN_ENTRIES} entries, smaller ones are not worth the extra latency.
+ */
+public class ResponseCompression {
+    private ResponseCompression() {
+    }
+
+    public static boolean accepts(Request request) {
+        return request.isAcceptCompression();
+    }
+
+    public static boolean isWorthCompressing(List<?> ranking) {
+        return ranking != null && ranking.size() >= COMPRESSION_MIN_ENTRIES;
+    }
+
+    /**
+     * Copy of the response with its large rankings replaced by their encoded form.
+     */
+    public static Response compress(Response response) {
+        var countryRanking = response.getCountryRanking();
+        var participantRanking = response.getParticipantRanking();
+        var compressed = response.toBuilder();
+
+        if (isWorthCompressing(countryRanking)) {
+            compressed.countryRanking(null)
+                    .encodedCountryRanking(RankingCodec.encodeCountries(countryRanking));
+        }
+        if (isWorthCompressing(participantRanking)) {
+            compressed.participantRanking(null)
+                    .encodedParticipantRanking(RankingCodec.encodeParticipants(participantRanking));
+        }
+        return compressed.build();
+    }
+
+    public static Response compressIfAccepted(Request request, Response response) {
+        return accepts(request) ? compress(response) : response;
+    }
+}
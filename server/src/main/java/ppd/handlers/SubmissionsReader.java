@@ -3,6 +3,7 @@ package ppd.handlers;
 import lombok.AllArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import ppd.events.ReaderEnqueueEvent;
 import ppd.models.ScoreProcessingQueue;
 import ppd.request.ScoreSubmission;
 
@@ -27,10 +28,17 @@ public class SubmissionsReader implements Runnable {
     }
 
     private void processSubmissions() throws InterruptedException {
+        var event = new ReaderEnqueueEvent();
+        event.begin();
         for (var submission : submissions) {
             var id = submission.id();
             var points = submission.score();
             queue.enqueue(id, country, points);
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.set(country, submissions.size());
+            event.commit();
+        }
     }
 }
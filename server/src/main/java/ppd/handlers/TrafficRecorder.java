@@ -0,0 +1,69 @@
+package ppd.handlers;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.request.Request;
+import ppd.trace.TraceWriter;
+
+import java.io.IOException;
+
+/**
+ * Captures the incoming requests to a traffic trace when {@code RECORD_TRAFFIC} is set, until the first write error.
+ */
+public class TrafficRecorder {
+    private volatile TraceWriter writer;
+
+    private static final Logger log = LogManager.getLogger(TrafficRecorder.class);
+
+    private TrafficRecorder(TraceWriter writer) {
+        this.writer = writer;
+    }
+
+    public static TrafficRecorder disabled() {
+        return new TrafficRecorder(null);
+    }
+
+    public static TrafficRecorder create(boolean enabled, String path) {
+        if (!enabled) {
+            return disabled();
+        }
+        try {
+            log.info("Recording traffic to {}", path);
+            return new TrafficRecorder(new TraceWriter(path));
+        } catch (IOException e) {
+            log.error("Cannot record traffic to {}: {}", path, e.getMessage());
+            return disabled();
+        }
+    }
+
+    public boolean isRecording() {
+        return writer != null;
+    }
+
+    public void record(Request request) {
+        var current = writer;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.write(request, System.nanoTime());
+        } catch (IOException e) {
+            log.error("Traffic recording stopped: {}", e.getMessage());
+            writer = null;
+        }
+    }
+
+    public void close() {
+        var current = writer;
+        if (current == null) {
+            return;
+        }
+        writer = null;
+        try {
+            current.close();
+            log.info("Recorded {} requests", current.getRecords());
+        } catch (IOException e) {
+            log.error(e);
+        }
+    }
+}
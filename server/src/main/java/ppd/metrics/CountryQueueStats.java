@@ -0,0 +1,14 @@
+package ppd.metrics;
+
+/**
+ * Snapshot of the ingestion queue of one country: records waiting, the largest backlog seen, and how long the
+ * dequeued records waited in the queue.
+ */
+public record CountryQueueStats(int country, int depth, int maxDepth, long dequeued,
+                                double averageWaitMillis, double maxWaitMillis) {
+    @Override
+    public String toString() {
+        return String.format("CountryQueueStats{country=%d, depth=%d, maxDepth=%d, dequeued=%d, avgWait=%.3fms, maxWait=%.3fms}",
+                country, depth, maxDepth, dequeued, averageWaitMillis, maxWaitMillis);
+    }
+}
@@ -0,0 +1,54 @@
+package ppd.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the final ranking requests registered before the ranking was available and how long they waited for it.
+ */
+public class FinalRankingMetrics {
+    private final AtomicInteger waiting = new AtomicInteger(0);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    /**
+     * Registers a waiting request and returns its start timestamp, to be passed to {@link #waitEnded(long)}.
+     */
+    public long waitStarted() {
+        waiting.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void waitEnded(long startNanos) {
+        var waited = System.nanoTime() - startNanos;
+        waiting.decrementAndGet();
+        completed.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public double getAverageWaitMillis() {
+        var count = completed.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FinalRankingMetrics{waiting=%d, completed=%d, avgWait=%.3fms, maxWait=%.3fms}",
+                getWaiting(), getCompleted(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
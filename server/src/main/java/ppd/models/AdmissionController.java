@@ -0,0 +1,74 @@
+package ppd.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the score records accepted but not yet applied by the writers, whether they wait in the reader executor or in
+ * the processing queue. Batches are admitted until the backlog crosses the high watermark, then rejected until the
+ * writers bring it back under the low watermark, so a burst is pushed back to the clients instead of piling up on the
+ * heap. Each admitted batch is granted the credits left under the high watermark.
+ */
+public class AdmissionController {
+    private final long highWatermark;
+    private final long lowWatermark;
+
+    private final AtomicLong outstanding = new AtomicLong(0);
+    private volatile boolean throttling = false;
+    private final LongAdder throttled = new LongAdder();
+
+    public AdmissionController(long highWatermark, long lowWatermark) {
+        if (lowWatermark < 0 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Invalid watermarks: low " + lowWatermark + ", high " + highWatermark);
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    public static AdmissionController unbounded() {
+        return new AdmissionController(Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Accounts for a batch of records and returns true, or returns false if the backlog is over the watermarks.
+     */
+    public boolean tryAdmit(int records) {
+        if (throttling) {
+            throttled.increment();
+            return false;
+        }
+        if (outstanding.addAndGet(records) >= highWatermark) {
+            // the batch is already in, the following ones wait for the backlog to drain
+            throttling = true;
+            // the writers may have drained it meanwhile, without seeing the flag to clear
+            if (outstanding.get() <= lowWatermark) {
+                throttling = false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Called once the records were applied to the ranking, or dropped before reaching the queue.
+     */
+    public void release(int records) {
+        if (outstanding.addAndGet(-records) <= lowWatermark && throttling) {
+            throttling = false;
+        }
+    }
+
+    /**
+     * Records that can still be sent before the high watermark is reached.
+     */
+    public int credits() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, highWatermark - outstanding.get()));
+    }
+
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getThrottled() {
+        return throttled.sum();
+    }
+}
@@ -0,0 +1,128 @@
+package ppd.models;
+
+import lombok.Getter;
+import ppd.events.RankingComputeEvent;
+import ppd.response.ParticipantScore;
+import ppd.utils.RankingCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ppd.utils.ContestConfig.EXTERNAL_SORT;
+import static ppd.utils.ContestConfig.EXTERNAL_SORT_MEMORY_BUDGET;
+import static ppd.utils.ContestConfig.EXTERNAL_SORT_SPILL_DIR;
+
+/**
+ * End-of-contest state of a contest. Each form of the final ranking is computed once, when the last country finished,
+ * and only if something asked for it.
+ */
+public class ContestLifecycle {
+    @Getter
+    private final AtomicInteger countriesLeft;
+    @Getter
+    private final AtomicInteger remainingClients;
+    private final Set<Integer> finishedCountries = new ConcurrentSkipListSet<>();
+
+    private final CompletableFuture<Void> submissionsFinished = new CompletableFuture<>();
+    private CompletableFuture<List<ParticipantScore>> finalRanking = null;
+    private final RankingStore rankingList;
+    private final WriterFlushBarrier flushBarrier;
+    private final Executor rankingExecutor;
+    private CompletableFuture<byte[]> encodedFinalRanking = null;
+    private CompletableFuture<ExternalRankingSorter> sortedFinalRanking = null;
+
+    public ContestLifecycle(int countries, RankingStore rankingList, WriterFlushBarrier flushBarrier, Executor rankingExecutor) {
+        this.countriesLeft = new AtomicInteger(countries);
+        this.remainingClients = new AtomicInteger(countries);
+        this.rankingList = rankingList;
+        this.flushBarrier = flushBarrier;
+        this.rankingExecutor = rankingExecutor;
+    }
+
+    private void flushWriters() {
+        // the final ranking must be exact, combining writers publish what they still hold first
+        try {
+            flushBarrier.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    public void markCountryFinished(int country) {
+        if (finishedCountries.add(country) && countriesLeft.decrementAndGet() == 0) {
+            submissionsFinished.complete(null);
+        }
+    }
+
+    // returns the number of clients still expected
+    public int markClientFinished(int country) {
+        if (finishedCountries.contains(country)) {
+            return remainingClients.decrementAndGet();
+        }
+        return remainingClients.get();
+    }
+
+    public boolean isSubmissionFinished() {
+        return submissionsFinished.isDone();
+    }
+
+    public CompletableFuture<Void> whenSubmissionsFinished() {
+        return submissionsFinished;
+    }
+
+    // merged from the externally sorted ranking with EXTERNAL_SORT
+    public synchronized CompletableFuture<List<ParticipantScore>> finalRanking() {
+        if (finalRanking == null && EXTERNAL_SORT) {
+            finalRanking = sortedFinalRanking().thenApplyAsync(ContestLifecycle::materialize, rankingExecutor);
+        } else if (finalRanking == null) {
+            finalRanking = submissionsFinished.thenApplyAsync(ignored -> {
+                flushWriters();
+                return RankingComputeEvent.timed(0, true, rankingList::getParticipantRanking);
+            }, rankingExecutor);
+        }
+        return finalRanking;
+    }
+
+    private static List<ParticipantScore> materialize(ExternalRankingSorter sorter) {
+        var ranking = PackedParticipantRanking.builder((int) sorter.size());
+        try {
+            sorter.merge(ranking::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ranking.build();
+    }
+
+    public synchronized CompletableFuture<ExternalRankingSorter> sortedFinalRanking() {
+        if (sortedFinalRanking == null) {
+            sortedFinalRanking = submissionsFinished.thenApplyAsync(ignored -> {
+                flushWriters();
+                return ExternalRankingSorter.sort(rankingList, EXTERNAL_SORT_MEMORY_BUDGET, Path.of(EXTERNAL_SORT_SPILL_DIR));
+            }, rankingExecutor);
+        }
+        return sortedFinalRanking;
+    }
+
+    public synchronized CompletableFuture<byte[]> encodedFinalRanking() {
+        if (encodedFinalRanking == null) {
+            encodedFinalRanking = finalRanking().thenApplyAsync(RankingCodec::encodeParticipants, rankingExecutor);
+        }
+        return encodedFinalRanking;
+    }
+
+    // once no response streams the externally sorted ranking anymore
+    public synchronized void close() {
+        if (sortedFinalRanking != null && sortedFinalRanking.isDone() && !sortedFinalRanking.isCompletedExceptionally()) {
+            sortedFinalRanking.join().close();
+        }
+    }
+}
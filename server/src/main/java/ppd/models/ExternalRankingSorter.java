@@ -0,0 +1,244 @@
+package ppd.models;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a participant ranking in bounded memory, spilling sorted runs of {@link PackedParticipantRanking} keys to
+ * temporary files and merging them k ways. The last run stays in memory. Once finished, the merge only reads and can
+ * run concurrently.
+ */
+public class ExternalRankingSorter implements RankingStore.ParticipantConsumer, Closeable {
+    // packed key and country of a spilled participant
+    private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES;
+    // the radix sort needs a second key and payload array of the same length
+    private static final int BUFFERED_RECORD_BYTES = 2 * RECORD_BYTES;
+    private static final int MIN_READ_RECORDS = 64;
+
+    private final long memoryBudget;
+    private final Path spillDir;
+    private final int runCapacity;
+    private long[] keys;
+    private int[] countries;
+    private int size = 0;
+    private final List<Run> runs = new ArrayList<>();
+    private boolean finished = false;
+
+    private static final Logger log = LogManager.getLogger(ExternalRankingSorter.class);
+
+    public interface EntryConsumer {
+        void accept(int id, int country, int score) throws IOException;
+    }
+
+    public ExternalRankingSorter(long memoryBudget, Path spillDir) {
+        if (memoryBudget < (long) BUFFERED_RECORD_BYTES * MIN_READ_RECORDS) {
+            throw new IllegalArgumentException("Memory budget too small: " + memoryBudget + " bytes");
+        }
+        this.memoryBudget = memoryBudget;
+        this.spillDir = spillDir;
+        this.runCapacity = (int) Math.min(Integer.MAX_VALUE - 8, memoryBudget / BUFFERED_RECORD_BYTES);
+        this.keys = new long[Math.min(runCapacity, 1 << 16)];
+        this.countries = new int[keys.length];
+    }
+
+    public static ExternalRankingSorter sort(RankingStore store, long memoryBudget, Path spillDir) {
+        var sorter = new ExternalRankingSorter(memoryBudget, spillDir);
+        try {
+            store.forEachParticipant(sorter);
+            sorter.finish();
+        } catch (RuntimeException e) {
+            sorter.close();
+            throw e;
+        }
+        return sorter;
+    }
+
+    @Override
+    public void accept(int id, int country, int score) {
+        if (finished) {
+            throw new IllegalStateException("Sorter already finished");
+        }
+        if (size == keys.length) {
+            if (size == runCapacity) {
+                spill();
+            } else {
+                var length = (int) Math.min(runCapacity, 2L * size);
+                keys = Arrays.copyOf(keys, length);
+                countries = Arrays.copyOf(countries, length);
+            }
+        }
+        keys[size] = PackedParticipantRanking.packKey(id, score);
+        countries[size] = country;
+        size++;
+    }
+
+    public void finish() {
+        if (!finished) {
+            ParallelRadixSort.sort(keys, countries, size);
+            finished = true;
+            if (!runs.isEmpty()) {
+                log.info("Final ranking of {} participants sorted in {} runs spilled to {}", size(), runs.size() + 1, spillDir);
+            }
+        }
+    }
+
+    public long size() {
+        return runs.stream().mapToLong(Run::records).sum() + size;
+    }
+
+    public int spilledRuns() {
+        return runs.size();
+    }
+
+    public void merge(EntryConsumer consumer) throws IOException {
+        if (!finished) {
+            throw new IllegalStateException("Sorter not finished");
+        }
+
+        // the spilled runs share what the budget leaves next to the in-memory run
+        var readRecords = runs.isEmpty() ? 0 : (int) Math.max(MIN_READ_RECORDS,
+                Math.min(1 << 16, (memoryBudget - (long) size * RECORD_BYTES) / RECORD_BYTES / runs.size()));
+        var cursors = new PriorityQueue<Cursor>(runs.size() + 1,
+                (first, second) -> Long.compareUnsigned(second.key, first.key));
+
+        var memoryCursor = new MemoryCursor();
+        if (memoryCursor.advance()) {
+            cursors.add(memoryCursor);
+        }
+        for (var run : runs) {
+            var cursor = new RunCursor(run, readRecords);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        while (!cursors.isEmpty()) {
+            var cursor = cursors.poll();
+            var key = cursor.key;
+            consumer.accept(PackedParticipantRanking.unpackId(key), cursor.country,
+                    PackedParticipantRanking.unpackScore(key));
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (var run : runs) {
+            try {
+                run.channel().close();
+                Files.deleteIfExists(run.path());
+            } catch (IOException e) {
+                log.error("Error deleting ranking run {}: {}", run.path(), e.getMessage());
+            }
+        }
+        runs.clear();
+    }
+
+    private void spill() {
+        ParallelRadixSort.sort(keys, countries, size);
+        try {
+            var path = Files.createTempFile(spillDir, "ranking-run-", ".bin");
+            var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            runs.add(new Run(path, channel, size));
+
+            var buffer = ByteBuffer.allocateDirect(RECORD_BYTES * (1 << 12));
+            // written backwards, so that a run is read in ranking order
+            for (int index = size - 1; index >= 0; index--) {
+                buffer.putLong(keys[index]).putInt(countries[index]);
+                if (!buffer.hasRemaining()) {
+                    writeFully(channel, buffer);
+                }
+            }
+            writeFully(channel, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error spilling ranking run to " + spillDir, e);
+        }
+        size = 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private record Run(Path path, FileChannel channel, long records) {
+    }
+
+    private abstract static class Cursor {
+        protected long key;
+        protected int country;
+
+        protected abstract boolean advance() throws IOException;
+    }
+
+    private class MemoryCursor extends Cursor {
+        private int position = size;
+
+        @Override
+        protected boolean advance() {
+            if (position == 0) {
+                return false;
+            }
+            position--;
+            key = keys[position];
+            country = countries[position];
+            return true;
+        }
+    }
+
+    private static class RunCursor extends Cursor {
+        private final FileChannel channel;
+        private final long length;
+        private final ByteBuffer buffer;
+        private long position = 0;
+
+        private RunCursor(Run run, int readRecords) {
+            this.channel = run.channel();
+            this.length = run.records() * RECORD_BYTES;
+            this.buffer = ByteBuffer.allocate(readRecords * RECORD_BYTES);
+            buffer.limit(0);
+        }
+
+        @Override
+        protected boolean advance() throws IOException {
+            if (!buffer.hasRemaining()) {
+                if (position == length) {
+                    return false;
+                }
+                // positional reads, every merge has its own cursors on the shared channels
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - position));
+                while (buffer.hasRemaining()) {
+                    var read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("Ranking run truncated at " + position + " of " + length + " bytes");
+                    }
+                    position += read;
+                }
+                buffer.flip();
+            }
+            key = buffer.getLong();
+            country = buffer.getInt();
+            return true;
+        }
+    }
+}
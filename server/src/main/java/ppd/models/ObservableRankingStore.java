@@ -0,0 +1,97 @@
+package ppd.models;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ranking store decorator reporting every applied update to its listeners, on the writer thread. Updates of different
+ * writers may be reported out of order, additions commute and a fraud removes the participant anyway.
+ */
+public class ObservableRankingStore implements RankingStore {
+    private final RankingStore delegate;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // per writer thread, when the update it is applying and reporting started, MAX_VALUE between updates
+    private final Map<Thread, AtomicLong> reporting = new ConcurrentHashMap<>();
+
+    public interface Listener {
+        // must not block the writer
+        void onUpdate(int id, int country, int points);
+    }
+
+    public ObservableRankingStore(RankingStore delegate) {
+        this.delegate = delegate;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void addOrUpdate(int id, int country, int points) {
+        if (listeners.isEmpty()) {
+            delegate.addOrUpdate(id, country, points);
+            return;
+        }
+        var started = reporting.computeIfAbsent(Thread.currentThread(), writer -> new AtomicLong(Long.MAX_VALUE));
+        started.set(System.currentTimeMillis());
+        try {
+            delegate.addOrUpdate(id, country, points);
+            for (var listener : listeners) {
+                listener.onUpdate(id, country, points);
+            }
+        } finally {
+            started.set(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * A time before which every applied update was already reported to the listeners.
+     */
+    public long reportedBeforeMillis() {
+        var reportedBefore = System.currentTimeMillis();
+        for (var started : reporting.values()) {
+            reportedBefore = Math.min(reportedBefore, started.get());
+        }
+        return reportedBefore;
+    }
+
+    @Override
+    public void forEachParticipant(ParticipantConsumer consumer) {
+        delegate.forEachParticipant(consumer);
+    }
+
+    @Override
+    public List<ParticipantScore> getParticipantRanking() {
+        return delegate.getParticipantRanking();
+    }
+
+    @Override
+    public List<CountryScore> getCountryRanking() {
+        return delegate.getCountryRanking();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long updateCount() {
+        return delegate.updateCount();
+    }
+
+    @Override
+    public long digest() {
+        return delegate.digest();
+    }
+}
@@ -0,0 +1,261 @@
+package ppd.models;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ranking store kept in direct buffers forming an open-addressing hash table. The table has a fixed capacity, it is
+ * never resized. Ranking reads traverse a {@link SnapshotEpoch} snapshot like {@link SynchronizedRankingLinkedList}:
+ * every slot keeps its score as of the previous epochs aside on its first change in a new one.
+ */
+public class OffHeapRankingStore implements RankingStore {
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int EMPTY = 0;
+    private static final int BLACKLISTED = Integer.MIN_VALUE;
+    // previous score of a participant inserted in the epoch of the slot
+    private static final int ABSENT = Integer.MIN_VALUE + 1;
+    // set in the version of a slot while a writer changes its score
+    private static final long BUSY = Long.MIN_VALUE;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final int slots;
+    private final int mask;
+    private final int maxParticipants;
+
+    // ids and countries are stored shifted by one so that a zeroed slot means empty, or not published yet; the ids in
+    // longs, -1 included
+    private final ByteBuffer keys;
+    private final ByteBuffer countries;
+    private final ByteBuffer scores;
+    private final ByteBuffer previousScores;
+    // epoch of the last change of the score
+    private final ByteBuffer versions;
+
+    private final SnapshotEpoch epochs = new SnapshotEpoch();
+    private final AtomicInteger occupied = new AtomicInteger(0);
+    private final AtomicInteger blacklisted = new AtomicInteger(0);
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder digest = new LongAdder();
+
+    public OffHeapRankingStore(int capacity) {
+        var requiredSlots = (long) Math.ceil(capacity / MAX_LOAD_FACTOR);
+        if (requiredSlots > (1 << 27)) {
+            throw new IllegalArgumentException("Off-heap ranking store capacity too large: " + capacity);
+        }
+        this.slots = Math.max(16, Integer.highestOneBit((int) Math.max(1, requiredSlots - 1)) << 1);
+        this.mask = slots - 1;
+        this.maxParticipants = (int) (slots * MAX_LOAD_FACTOR);
+
+        this.keys = ByteBuffer.allocateDirect(slots * Long.BYTES).order(ByteOrder.nativeOrder());
+        this.countries = ByteBuffer.allocateDirect(slots * Integer.BYTES).order(ByteOrder.nativeOrder());
+        this.scores = ByteBuffer.allocateDirect(slots * Integer.BYTES).order(ByteOrder.nativeOrder());
+        this.previousScores = ByteBuffer.allocateDirect(slots * Integer.BYTES).order(ByteOrder.nativeOrder());
+        this.versions = ByteBuffer.allocateDirect(slots * Long.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public void addOrUpdate(int id, int country, int points) {
+        updates.increment();
+        var epoch = epochs.beginWrite();
+        try {
+            var slot = findOrInsert(id, country, epoch);
+            var version = lock(slot);
+            try {
+                version = apply(slot, version, epoch, id, points);
+            } finally {
+                LONG.setRelease(versions, longOffset(slot), version);
+            }
+        } finally {
+            epochs.endWrite(epoch);
+        }
+    }
+
+    // the slot is locked, returns its new version
+    private long apply(int slot, long version, long epoch, int id, int points) {
+        var score = (int) INT.get(scores, offset(slot));
+        if (version < epoch) {
+            INT.set(previousScores, offset(slot), score);
+            version = epoch;
+        } else if (version > epoch) {
+            // a writer of the epoch being closed, the snapshot of that epoch includes its change
+            var previous = (int) INT.get(previousScores, offset(slot));
+            if (previous != BLACKLISTED) {
+                var updated = points == -1 ? BLACKLISTED : (previous == ABSENT ? 0 : previous) + points;
+                INT.set(previousScores, offset(slot), updated);
+            }
+        }
+
+        if (score == BLACKLISTED) {
+            return version;
+        }
+        var country = (int) INT.get(countries, offset(slot)) - 1;
+        if (points == -1) {
+            INT.set(scores, offset(slot), BLACKLISTED);
+            blacklisted.incrementAndGet();
+            digest.add(-RankingDigest.entryHash(id, country, score));
+        } else {
+            INT.set(scores, offset(slot), score + points);
+            digest.add(RankingDigest.updateDelta(id, country, score, score + points));
+        }
+        return version;
+    }
+
+    private long lock(int slot) {
+        while (true) {
+            var version = (long) LONG.getVolatile(versions, longOffset(slot));
+            if ((version & BUSY) == 0 && LONG.compareAndSet(versions, longOffset(slot), version, version | BUSY)) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int findOrInsert(int id, int country, long epoch) {
+        var key = keyOf(id);
+        var slot = mix(id) & mask;
+
+        for (int probes = 0; probes < slots; probes++) {
+            var current = (long) LONG.getVolatile(keys, longOffset(slot));
+            if (current == key) {
+                // inserted concurrently, its version is set once its country is published
+                while ((int) INT.getAcquire(countries, offset(slot)) == EMPTY) {
+                    Thread.onSpinWait();
+                }
+                return slot;
+            }
+            if (current == EMPTY) {
+                if (occupied.get() >= maxParticipants) {
+                    throw new IllegalStateException("Off-heap ranking store is full: " + maxParticipants + " participants");
+                }
+                if (LONG.compareAndSet(keys, longOffset(slot), (long) EMPTY, key)) {
+                    occupied.incrementAndGet();
+                    INT.set(previousScores, offset(slot), ABSENT);
+                    LONG.set(versions, longOffset(slot), epoch);
+                    // readers skip slots whose country is not published yet
+                    INT.setRelease(countries, offset(slot), country + 1);
+                    digest.add(RankingDigest.entryHash(id, country, 0));
+                    return slot;
+                }
+                // lost the slot to a concurrent insert, re-check it since it may be the same participant
+                continue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        throw new IllegalStateException("Off-heap ranking store is full: " + maxParticipants + " participants");
+    }
+
+    private static int mix(int id) {
+        var h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long keyOf(int id) {
+        return (id & 0xFFFFFFFFL) + 1;
+    }
+
+    private static int offset(int slot) {
+        return slot * Integer.BYTES;
+    }
+
+    // keys and versions
+    private static int longOffset(int slot) {
+        return slot * Long.BYTES;
+    }
+
+    @Override
+    public List<ParticipantScore> getParticipantRanking() {
+        var ranking = PackedParticipantRanking.builder(size());
+        forEachParticipant(ranking::add);
+        return ranking.build();
+    }
+
+    @Override
+    public void forEachParticipant(ParticipantConsumer consumer) {
+        var snapshot = epochs.beginSnapshot();
+        try {
+            for (int slot = 0; slot < slots; slot++) {
+                var key = (long) LONG.getVolatile(keys, longOffset(slot));
+                if (key == EMPTY) {
+                    continue;
+                }
+                var country = (int) INT.getAcquire(countries, offset(slot));
+                if (country == EMPTY) {
+                    continue;
+                }
+                var score = scoreAt(slot, snapshot);
+                if (score != BLACKLISTED && score != ABSENT) {
+                    consumer.accept((int) (key - 1), country - 1, score);
+                }
+            }
+        } finally {
+            epochs.endSnapshot();
+        }
+    }
+
+    // the score of a published slot as of the snapshot, retried while a writer changes it
+    private int scoreAt(int slot, long snapshot) {
+        while (true) {
+            var version = (long) LONG.getVolatile(versions, longOffset(slot));
+            if ((version & BUSY) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            var score = version <= snapshot
+                    ? (int) INT.getVolatile(scores, offset(slot))
+                    : (int) INT.getVolatile(previousScores, offset(slot));
+            if ((long) LONG.getVolatile(versions, longOffset(slot)) == version) {
+                return score;
+            }
+        }
+    }
+
+    @Override
+    public List<CountryScore> getCountryRanking() {
+        Map<Integer, Integer> countryScores = new HashMap<>();
+        forEachParticipant((id, country, score) -> countryScores.merge(country, score, Integer::sum));
+
+        List<CountryScore> list = new ArrayList<>();
+        for (var entry : countryScores.entrySet()) {
+            list.add(new CountryScore(entry.getKey(), entry.getValue()));
+        }
+        list.sort((a, b) -> {
+            if (b.totalScore() != a.totalScore()) {
+                return Integer.compare(b.totalScore(), a.totalScore());
+            } else {
+                return Integer.compare(b.country(), a.country());
+            }
+        });
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return occupied.get() - blacklisted.get();
+    }
+
+    @Override
+    public long updateCount() {
+        return updates.sum();
+    }
+
+    @Override
+    public long digest() {
+        return digest.sum();
+    }
+
+    public long offHeapBytes() {
+        return (2L * Long.BYTES + 3L * Integer.BYTES) * slots;
+    }
+}
@@ -0,0 +1,94 @@
+package ppd.models;
+
+import ppd.response.ParticipantScore;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Read-only participant ranking backed by primitive arrays, sorted by a long key per participant.
+ * The score and the id are packed with their sign bit flipped, ascending unsigned key order is ascending (score, id)
+ * order and the ranking is read backwards.
+ */
+public class PackedParticipantRanking extends AbstractList<ParticipantScore> implements RandomAccess, Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final long[] keys;
+    private final int[] countries;
+    private final int size;
+
+    private PackedParticipantRanking(long[] keys, int[] countries, int size) {
+        this.keys = keys;
+        this.countries = countries;
+        this.size = size;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public static long packKey(int id, int score) {
+        return ((long) (score ^ Integer.MIN_VALUE) << 32) | ((id ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    public static int unpackId(long key) {
+        return (int) key ^ Integer.MIN_VALUE;
+    }
+
+    public static int unpackScore(long key) {
+        return (int) (key >>> 32) ^ Integer.MIN_VALUE;
+    }
+
+    @Override
+    public ParticipantScore get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        var position = size - 1 - index;
+        var key = keys[position];
+        return new ParticipantScore(unpackId(key), countries[position], unpackScore(key));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // clients only know the plain list types from the common module
+    @Serial
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+
+    public static class Builder {
+        private long[] keys;
+        private int[] countries;
+        private int size = 0;
+
+        private Builder(int expectedSize) {
+            this.keys = new long[Math.max(16, expectedSize)];
+            this.countries = new int[keys.length];
+        }
+
+        public Builder add(int id, int country, int score) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                countries = Arrays.copyOf(countries, size * 2);
+            }
+            keys[size] = packKey(id, score);
+            countries[size] = country;
+            size++;
+            return this;
+        }
+
+        public PackedParticipantRanking build() {
+            ParallelRadixSort.sort(keys, countries, size);
+            return new PackedParticipantRanking(keys, countries, size);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ppd.models;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel least-significant-digit radix sort of unsigned 64-bit keys, carrying an int payload along with every key.
+ * Passes on digits identical for every key are skipped.
+ */
+public class ParallelRadixSort {
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int PASSES = Long.SIZE / RADIX_BITS;
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private ParallelRadixSort() {
+    }
+
+    public static void sort(long[] keys, int[] payload, int size) {
+        if (size < 2) {
+            return;
+        }
+
+        var chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_CHUNK_SIZE));
+        var chunkSize = (size + chunks - 1) / chunks;
+
+        var srcKeys = keys;
+        var srcPayload = payload;
+        var dstKeys = new long[size];
+        var dstPayload = new int[size];
+        var histograms = new int[chunks][BUCKETS];
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            var shift = pass * RADIX_BITS;
+            final var fromKeys = srcKeys;
+
+            forEachChunk(chunks, chunk -> {
+                var histogram = histograms[chunk];
+                Arrays.fill(histogram, 0);
+                var end = Math.min(size, (chunk + 1) * chunkSize);
+                for (int i = chunk * chunkSize; i < end; i++) {
+                    histogram[(int) (fromKeys[i] >>> shift) & (BUCKETS - 1)]++;
+                }
+            });
+
+            if (isSingleBucket(histograms, size)) {
+                continue;
+            }
+
+            // exclusive prefix sums, bucket-major so equal digits keep their chunk order and the sort stays stable
+            var offset = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    var count = histograms[chunk][bucket];
+                    histograms[chunk][bucket] = offset;
+                    offset += count;
+                }
+            }
+
+            final var fromPayload = srcPayload;
+            final var toKeys = dstKeys;
+            final var toPayload = dstPayload;
+            forEachChunk(chunks, chunk -> {
+                var positions = histograms[chunk];
+                var end = Math.min(size, (chunk + 1) * chunkSize);
+                for (int i = chunk * chunkSize; i < end; i++) {
+                    var position = positions[(int) (fromKeys[i] >>> shift) & (BUCKETS - 1)]++;
+                    toKeys[position] = fromKeys[i];
+                    toPayload[position] = fromPayload[i];
+                }
+            });
+
+            dstKeys = srcKeys;
+            dstPayload = srcPayload;
+            srcKeys = toKeys;
+            srcPayload = toPayload;
+        }
+
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+            System.arraycopy(srcPayload, 0, payload, 0, size);
+        }
+    }
+
+    private static boolean isSingleBucket(int[][] histograms, int size) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            var total = 0;
+            for (var histogram : histograms) {
+                total += histogram[bucket];
+            }
+            if (total != 0) {
+                return total == size;
+            }
+        }
+        return true;
+    }
+
+    private static void forEachChunk(int chunks, IntConsumer task) {
+        if (chunks == 1) {
+            task.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(task);
+        }
+    }
+}
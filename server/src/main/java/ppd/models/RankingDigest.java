@@ -0,0 +1,36 @@
+package ppd.models;
+
+import ppd.response.ParticipantScore;
+
+/**
+ * Order-independent digest of a ranking: the sum, modulo 2^64, of a 64-bit hash of every (id, country, score) entry.
+ * A store keeps it up to date by adding the hash of the new entry and subtracting the hash of the old one on every
+ * change, so two rankings can be compared in constant time whatever the order their updates were applied in.
+ */
+public class RankingDigest {
+    private RankingDigest() {
+    }
+
+    public static long entryHash(int id, int country, int score) {
+        // splitmix64 finalizer over the packed entry
+        var h = ((long) id << 32 | (score & 0xFFFFFFFFL)) + country * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Digest change of an entry whose score went from {@code oldScore} to {@code newScore}.
+     */
+    public static long updateDelta(int id, int country, int oldScore, int newScore) {
+        return entryHash(id, country, newScore) - entryHash(id, country, oldScore);
+    }
+
+    public static long of(Iterable<ParticipantScore> ranking) {
+        long digest = 0;
+        for (var participant : ranking) {
+            digest += entryHash(participant.id(), participant.country(), participant.score());
+        }
+        return digest;
+    }
+}
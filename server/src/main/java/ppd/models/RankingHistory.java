@@ -0,0 +1,337 @@
+package ppd.models;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ranking snapshots kept in a persistent trie sharing unchanged nodes, for rankings as of an earlier moment.
+ */
+public class RankingHistory implements ObservableRankingStore.Listener {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final int FRAUD = -1;
+
+    private final long snapshotMillis;
+    private final long fullRetentionMillis;
+    private final long compactedIntervalMillis;
+    private final int maxSnapshots;
+    private final NavigableMap<Long, Snapshot> snapshots = new ConcurrentSkipListMap<>();
+    private final Queue<Update> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Node root;
+    private int shift = 0;
+    // nodes tagged with the current edit are owned by the head, older ones belong to a snapshot
+    private long edit = 1;
+    private int size = 0;
+    private int[] countryTotals;
+    private int[] countryParticipants;
+    private long updates = 0;
+    private long copiedNodes = 0;
+    private long snapshotUpdates = 0;
+    private long lastSnapshotMillis;
+    private long lastUpdateMillis;
+    private long compactedUpToMillis = Long.MIN_VALUE;
+    private long snapshotsTaken = 0;
+
+    public RankingHistory(int countries, long snapshotMillis, long fullRetentionMillis, long compactedIntervalMillis,
+                          int maxSnapshots) {
+        this.snapshotMillis = snapshotMillis;
+        this.fullRetentionMillis = fullRetentionMillis;
+        this.compactedIntervalMillis = compactedIntervalMillis;
+        this.maxSnapshots = maxSnapshots;
+        this.root = Node.leaf(edit);
+        this.countryTotals = new int[countries + 1];
+        this.countryParticipants = new int[countries + 1];
+        this.lastUpdateMillis = System.currentTimeMillis();
+        snapshot(lastUpdateMillis);
+    }
+
+    @Override
+    public void onUpdate(int id, int country, int points) {
+        pending.offer(new Update(id, country, points, System.currentTimeMillis()));
+        // re-checked after unlock so an update offered meanwhile is not left behind
+        while (!pending.isEmpty() && lock.tryLock()) {
+            try {
+                applyPending();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void applyPending() {
+        Update update;
+        while ((update = pending.poll()) != null) {
+            if (updates != snapshotUpdates && update.timestampMillis() - lastSnapshotMillis >= snapshotMillis) {
+                snapshot(lastUpdateMillis);
+            }
+            apply(update.id(), update.country(), update.points());
+            lastUpdateMillis = Math.max(lastUpdateMillis, update.timestampMillis());
+        }
+    }
+
+    private void apply(int id, int country, int points) {
+        updates++;
+
+        var leaf = editablePath(id);
+        var slot = id & MASK;
+        var entry = leaf.entries[slot];
+        if (country >= countryTotals.length) {
+            countryTotals = Arrays.copyOf(countryTotals, country * 2);
+            countryParticipants = Arrays.copyOf(countryParticipants, country * 2);
+        }
+
+        if (entry == 0) {
+            leaf.entries[slot] = pack(country, points);
+            if (points != FRAUD) {
+                size++;
+                countryTotals[country] += points;
+                countryParticipants[country]++;
+            }
+            return;
+        }
+
+        var score = unpackScore(entry);
+        if (score == FRAUD) {
+            return;
+        }
+        var entryCountry = unpackCountry(entry);
+        if (points == FRAUD) {
+            size--;
+            countryTotals[entryCountry] -= score;
+            countryParticipants[entryCountry]--;
+            leaf.entries[slot] = pack(entryCountry, FRAUD);
+        } else {
+            countryTotals[entryCountry] += points;
+            leaf.entries[slot] = pack(entryCountry, score + points);
+        }
+    }
+
+    public Snapshot asOf(long timestampMillis) {
+        if (timestampMillis >= System.currentTimeMillis()) {
+            return current();
+        }
+        lock.lock();
+        try {
+            applyPending();
+        } finally {
+            lock.unlock();
+        }
+        var entry = snapshots.floorEntry(timestampMillis);
+        return entry == null ? null : entry.getValue();
+    }
+
+    public Snapshot current() {
+        lock.lock();
+        try {
+            applyPending();
+            if (updates != snapshotUpdates) {
+                snapshot(lastUpdateMillis);
+            }
+            return snapshots.lastEntry().getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int retainedSnapshots() {
+        return snapshots.size();
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "RankingHistory{" +
+                    "snapshotsTaken=" + snapshotsTaken +
+                    ", retainedSnapshots=" + snapshots.size() +
+                    ", updates=" + updates +
+                    ", copiedNodes=" + copiedNodes +
+                    '}';
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void snapshot(long timestampMillis) {
+        var snapshot = new Snapshot(timestampMillis, root, shift, size, countryTotals.clone(),
+                countryParticipants.clone());
+        edit++;
+        snapshotUpdates = updates;
+        lastSnapshotMillis = timestampMillis;
+        snapshotsTaken++;
+        snapshots.put(timestampMillis, snapshot);
+        compact(timestampMillis);
+    }
+
+    private void compact(long nowMillis) {
+        var horizon = nowMillis - fullRetentionMillis;
+        Long previous = null;
+        for (var timestamp : snapshots.subMap(compactedUpToMillis, true, horizon, false).keySet()) {
+            if (previous != null && previous / compactedIntervalMillis == timestamp / compactedIntervalMillis) {
+                snapshots.remove(previous);
+            }
+            previous = timestamp;
+        }
+        if (previous != null) {
+            compactedUpToMillis = previous;
+        }
+        while (snapshots.size() > maxSnapshots) {
+            snapshots.pollFirstEntry();
+        }
+    }
+
+    private Node editablePath(int id) {
+        while (shift + BITS < Integer.SIZE - 1 && (id >>> (shift + BITS)) != 0) {
+            var grown = Node.branch(edit);
+            copiedNodes++;
+            grown.children[0] = root;
+            root = grown;
+            shift += BITS;
+        }
+
+        root = editable(root);
+        var node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            var index = (id >>> level) & MASK;
+            var child = node.children[index];
+            if (child == null) {
+                child = level == BITS ? Node.leaf(edit) : Node.branch(edit);
+                copiedNodes++;
+            } else {
+                child = editable(child);
+            }
+            node.children[index] = child;
+            node = child;
+        }
+        return node;
+    }
+
+    private Node editable(Node node) {
+        if (node.edit == edit) {
+            return node;
+        }
+        copiedNodes++;
+        return node.copy(edit);
+    }
+
+    // countries start at 1, an empty slot is 0
+    private static long pack(int country, int score) {
+        return ((long) country << Integer.SIZE) | (score & 0xFFFFFFFFL);
+    }
+
+    private static int unpackCountry(long entry) {
+        return (int) (entry >>> Integer.SIZE);
+    }
+
+    private static int unpackScore(long entry) {
+        return (int) entry;
+    }
+
+    private record Update(int id, int country, int points, long timestampMillis) {
+    }
+
+    private static final class Node {
+        private final long edit;
+        private final Node[] children;
+        private final long[] entries;
+
+        private Node(long edit, Node[] children, long[] entries) {
+            this.edit = edit;
+            this.children = children;
+            this.entries = entries;
+        }
+
+        private static Node branch(long edit) {
+            return new Node(edit, new Node[WIDTH], null);
+        }
+
+        private static Node leaf(long edit) {
+            return new Node(edit, null, new long[WIDTH]);
+        }
+
+        private Node copy(long edit) {
+            return children != null
+                    ? new Node(edit, children.clone(), null)
+                    : new Node(edit, null, entries.clone());
+        }
+    }
+
+    public static final class Snapshot {
+        private final long timestampMillis;
+        private final Node root;
+        private final int shift;
+        private final int size;
+        private final int[] countryTotals;
+        private final int[] countryParticipants;
+
+        private Snapshot(long timestampMillis, Node root, int shift, int size, int[] countryTotals,
+                         int[] countryParticipants) {
+            this.timestampMillis = timestampMillis;
+            this.root = root;
+            this.shift = shift;
+            this.size = size;
+            this.countryTotals = countryTotals;
+            this.countryParticipants = countryParticipants;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public List<ParticipantScore> getParticipantRanking() {
+            var ranking = PackedParticipantRanking.builder(size);
+            forEachParticipant(root, shift, 0, ranking::add);
+            return ranking.build();
+        }
+
+        public List<CountryScore> getCountryRanking() {
+            List<CountryScore> list = new ArrayList<>();
+            for (int country = 0; country < countryTotals.length; country++) {
+                if (countryParticipants[country] > 0) {
+                    list.add(new CountryScore(country, countryTotals[country]));
+                }
+            }
+            list.sort((a, b) -> {
+                if (b.totalScore() != a.totalScore()) {
+                    return Integer.compare(b.totalScore(), a.totalScore());
+                }
+                return Integer.compare(b.country(), a.country());
+            });
+            return list;
+        }
+
+        private static void forEachParticipant(Node node, int level, int prefix, RankingStore.ParticipantConsumer consumer) {
+            if (level == 0) {
+                for (int slot = 0; slot < WIDTH; slot++) {
+                    var entry = node.entries[slot];
+                    if (entry != 0 && unpackScore(entry) != FRAUD) {
+                        consumer.accept(prefix | slot, unpackCountry(entry), unpackScore(entry));
+                    }
+                }
+                return;
+            }
+            for (int index = 0; index < WIDTH; index++) {
+                var child = node.children[index];
+                if (child != null) {
+                    forEachParticipant(child, level - BITS, prefix | (index << level), consumer);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ppd.models;
+
+import ppd.response.CountryScore;
+import ppd.response.ParticipantScore;
+
+import java.util.List;
+
+import static ppd.utils.ContestConfig.OFF_HEAP_CAPACITY;
+
+/**
+ * Concurrent participant score store shared by the ranking writers and the ranking requests.
+ * A score of {@code -1} marks a fraud: the participant is removed and every later update for it is ignored.
+ */
+public interface RankingStore {
+    String LINKED = "linked";
+    String OFF_HEAP = "off-heap";
+
+    interface ParticipantConsumer {
+        void accept(int id, int country, int score);
+    }
+
+    void addOrUpdate(int id, int country, int points);
+
+    // in no particular order
+    void forEachParticipant(ParticipantConsumer consumer);
+
+    // score descending, then id descending
+    List<ParticipantScore> getParticipantRanking();
+
+    // total score descending, then country descending
+    List<CountryScore> getCountryRanking();
+
+    int size();
+
+    long updateCount();
+
+    long digest();
+
+    static RankingStore create(String type) {
+        return switch (type) {
+            case LINKED -> new SynchronizedRankingLinkedList();
+            case OFF_HEAP -> new OffHeapRankingStore(OFF_HEAP_CAPACITY);
+            default -> throw new IllegalArgumentException("Unknown ranking store type: " + type);
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package ppd.models;
+
+import java.util.Arrays;
+
+/**
+ * Score deltas accumulated by a single writer before they are published to the ranking store: an open-addressing map
+ * from participant id to (country, delta) on primitive arrays, so combining records allocates nothing.
+ * Not thread-safe, each combining writer owns one.
+ */
+public class ScoreDeltaMap {
+    private static final int EMPTY = 0;
+
+    private final int[] keys;
+    private final int[] countries;
+    private final int[] deltas;
+    private final int mask;
+    private final int capacity;
+    private int size = 0;
+
+    public interface DeltaConsumer {
+        void accept(int id, int country, int delta);
+    }
+
+    /**
+     * A map holding up to {@code capacity} participants, the table is kept at most half full.
+     */
+    public ScoreDeltaMap(int capacity) {
+        var slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.keys = new int[slots];
+        this.countries = new int[slots];
+        this.deltas = new int[slots];
+        this.mask = slots - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the points to the participant's delta, returns false if the map is full and the participant not in it.
+     */
+    public boolean add(int id, int country, int points) {
+        // ids are stored shifted by one, so that 0 marks an empty slot
+        var key = id + 1;
+        var slot = mix(id) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                deltas[slot] += points;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == capacity) {
+            return false;
+        }
+        keys[slot] = key;
+        countries[slot] = country;
+        deltas[slot] = points;
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Hands every accumulated delta to the consumer, then empties the map.
+     */
+    public void drain(DeltaConsumer consumer) {
+        if (size == 0) {
+            return;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot] - 1, countries[slot], deltas[slot]);
+            }
+        }
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private static int mix(int id) {
+        var h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,66 +1,274 @@
 package ppd.models;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import ppd.events.QueueWaitEvent;
+import ppd.metrics.CountryQueueStats;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Ingestion queue between the readers and the ranking writers, with one bounded queue per country served by weighted
+ * deficit round robin: each turn, a country may hand out up to {@code quantum * weight} records before the writers
+ * move on to the next country with pending records. A country bursting submissions only fills its own queue and
+ * blocks its own readers, the other countries keep their share of the writers.
+ */
 public class ScoreProcessingQueue {
     private final int capacity;
+    private final int quantum;
+    private final Map<Integer, Integer> weights;
     private final AtomicInteger countriesLeft;
     private final ScoreRecord NULL_RECORD = new ScoreRecord(-1, -1, -1);
 
     private final Lock queueLock = new ReentrantLock();
-    private final Condition notFull = queueLock.newCondition();
     private final Condition notEmpty = queueLock.newCondition();
 
-    private final Queue<ScoreRecord> queue = new LinkedList<>();
+    private final Map<Integer, CountryQueue> countries = new HashMap<>();
+    // countries with pending records, in round robin order
+    private final ArrayDeque<CountryQueue> active = new ArrayDeque<>();
+    private int size = 0;
+    // digest of every record enqueued, to be matched by the sum of the writers' digests
+    private final LongAdder inputDigest = new LongAdder();
+    // told about every enqueued record, outside of the queue lock
+    private volatile Runnable enqueueListener = () -> {
+    };
 
+    /**
+     * A queue holding up to {@code capacity} records per country, all countries weighted equally.
+     */
     public ScoreProcessingQueue(int capacity, AtomicInteger countries) {
+        this(capacity, 1, Map.of(), countries);
+    }
+
+    /**
+     * A queue holding up to {@code capacity} records per country, a country missing from the weights has weight 1.
+     */
+    public ScoreProcessingQueue(int capacity, int quantum, Map<Integer, Integer> weights, AtomicInteger countries) {
         this.capacity = capacity;
+        this.quantum = quantum;
+        this.weights = weights;
         this.countriesLeft = countries;
     }
 
+    private final class CountryQueue {
+        final int country;
+        final int weight;
+        final Condition notFull = queueLock.newCondition();
+
+        // ring buffer of the pending records, grown only once the submissions are over
+        int[] ids;
+        int[] points;
+        long[] enqueuedNanos;
+        int head = 0;
+        int size = 0;
+        int deficit = 0;
+
+        int maxDepth = 0;
+        long dequeued = 0;
+        long totalWaitNanos = 0;
+        long maxWaitNanos = 0;
+
+        CountryQueue(int country) {
+            this.country = country;
+            this.weight = Math.max(1, weights.getOrDefault(country, 1));
+            this.ids = new int[capacity];
+            this.points = new int[capacity];
+            this.enqueuedNanos = new long[capacity];
+        }
+
+        boolean isFull() {
+            return size == ids.length;
+        }
+
+        void add(int id, int score) {
+            if (isFull()) {
+                grow();
+            }
+            var tail = (head + size) % ids.length;
+            ids[tail] = id;
+            points[tail] = score;
+            enqueuedNanos[tail] = System.nanoTime();
+            size++;
+            maxDepth = Math.max(maxDepth, size);
+        }
+
+        ScoreRecord remove() {
+            var record = new ScoreRecord(ids[head], country, points[head]);
+            var waited = System.nanoTime() - enqueuedNanos[head];
+            head = (head + 1) % ids.length;
+            size--;
+
+            dequeued++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+            return record;
+        }
+
+        private void grow() {
+            var length = ids.length * 2;
+            var newIds = new int[length];
+            var newPoints = new int[length];
+            var newEnqueuedNanos = new long[length];
+            for (int i = 0; i < size; i++) {
+                var index = (head + i) % ids.length;
+                newIds[i] = ids[index];
+                newPoints[i] = points[index];
+                newEnqueuedNanos[i] = enqueuedNanos[index];
+            }
+            ids = newIds;
+            points = newPoints;
+            enqueuedNanos = newEnqueuedNanos;
+            head = 0;
+        }
+
+        CountryQueueStats stats() {
+            var averageWait = dequeued == 0 ? 0 : totalWaitNanos / 1e6 / dequeued;
+            return new CountryQueueStats(country, size, maxDepth, dequeued, averageWait, maxWaitNanos / 1e6);
+        }
+    }
+
     public void enqueue(int id, int country, int points) throws InterruptedException {
-        var record = new ScoreRecord(id, country, points);
+        inputDigest.add(RankingDigest.entryHash(id, country, points));
         queueLock.lock();
         try {
-            while (queue.size() == capacity && countriesLeft.get() > 0) {
-                notFull.await();
+            var countryQueue = countries.computeIfAbsent(country, CountryQueue::new);
+            if (countryQueue.isFull() && countriesLeft.get() > 0) {
+                var event = new QueueWaitEvent();
+                event.begin();
+                while (countryQueue.isFull() && countriesLeft.get() > 0) {
+                    countryQueue.notFull.await();
+                }
+                commitWait(event, country, true);
             }
 
-            queue.add(record);
+            if (countryQueue.size == 0) {
+                active.addLast(countryQueue);
+            }
+            countryQueue.add(id, points);
+            size++;
             notEmpty.signalAll();
         } finally {
             queueLock.unlock();
         }
+        enqueueListener.run();
+    }
+
+    // for the writers that do not block on this queue
+    public void setEnqueueListener(Runnable listener) {
+        this.enqueueListener = listener;
     }
 
     public ScoreRecord dequeue() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Like {@link #dequeue()}, but returns null if no record arrived within the timeout.
+     */
+    public ScoreRecord poll(long timeout, TimeUnit unit) throws InterruptedException {
         queueLock.lock();
         try {
-            while (queue.isEmpty() && countriesLeft.get() > 0) {
-                notEmpty.await();
+            QueueWaitEvent event = null;
+            if (size == 0 && countriesLeft.get() > 0) {
+                event = new QueueWaitEvent();
+                event.begin();
+                var remaining = unit.toNanos(timeout);
+                while (size == 0 && countriesLeft.get() > 0) {
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
             }
 
-            if (queue.isEmpty() && countriesLeft.get() == 0) {
-                return NULL_RECORD;
+            var record = take();
+            if (event != null && record != NULL_RECORD) {
+                commitWait(event, record.getCountry(), false);
             }
-
-            var record = queue.poll();
-            notFull.signalAll();
             return record;
         } finally {
             queueLock.unlock();
         }
     }
 
+    /**
+     * Like {@link #dequeue()}, but returns null at once if no record is pending.
+     */
+    public ScoreRecord tryDequeue() {
+        queueLock.lock();
+        try {
+            if (size == 0 && countriesLeft.get() > 0) {
+                return null;
+            }
+            return take();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    // the next record in round robin order, or the end marker once the submissions are over, under the lock
+    private ScoreRecord take() {
+        if (size == 0) {
+            return NULL_RECORD;
+        }
+
+        var countryQueue = active.peekFirst();
+        if (countryQueue.deficit == 0) {
+            countryQueue.deficit = quantum * countryQueue.weight;
+        }
+        var record = countryQueue.remove();
+        countryQueue.deficit--;
+        size--;
+
+        if (countryQueue.size == 0) {
+            // an idle country does not keep its unused share
+            countryQueue.deficit = 0;
+            active.pollFirst();
+        } else if (countryQueue.deficit == 0) {
+            active.addLast(active.pollFirst());
+        }
+
+        countryQueue.notFull.signalAll();
+        return record;
+    }
+
+    private static void commitWait(QueueWaitEvent event, int country, boolean producer) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.set(country, 1);
+            event.setProducer(producer);
+            event.commit();
+        }
+    }
+
+    public long inputDigest() {
+        return inputDigest.sum();
+    }
+
+    /**
+     * Per-country queue depth and wait times, ordered by country.
+     */
+    public List<CountryQueueStats> getCountryStats() {
+        queueLock.lock();
+        try {
+            return countries.values().stream()
+                    .map(CountryQueue::stats)
+                    .sorted(Comparator.comparingInt(CountryQueueStats::country))
+                    .toList();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
     public void close() {
         queueLock.lock();
         try {
             notEmpty.signalAll();
+            countries.values().forEach(countryQueue -> countryQueue.notFull.signalAll());
         } finally {
             queueLock.unlock();
         }
@@ -14,17 +14,29 @@ import java.util.concurrent.locks.ReentrantLock;
 @NoArgsConstructor
 public class ScoreRecord {
     private int id;
-    private int score;
+    private volatile int score;
     private int country;
-    private ScoreRecord next = null;
+    private volatile ScoreRecord next = null;
     private final ReentrantLock lock = new ReentrantLock();
 
+    // versioning for snapshot reads, see SnapshotEpoch
+    private volatile long createdEpoch = 0;
+    private volatile long removedEpoch = 0;
+    private volatile long scoreEpoch = 0;
+    private volatile int previousScore = 0;
+
     public ScoreRecord(int id, int country, int score) {
         this.id = id;
         this.country = country;
         this.score = score;
     }
 
+    public ScoreRecord(int id, int country, int score, long epoch) {
+        this(id, country, score);
+        this.createdEpoch = epoch;
+        this.scoreEpoch = epoch;
+    }
+
     public void lock() {
         lock.lock();
     }
@@ -33,6 +45,36 @@ public class ScoreRecord {
         lock.unlock();
     }
 
+    /**
+     * Adds points in the given write epoch, keeping the score of the previous epochs aside on the first change.
+     * Must be called while holding the record lock.
+     */
+    public void addScore(int points, long epoch) {
+        if (scoreEpoch < epoch) {
+            previousScore = score;
+            scoreEpoch = epoch;
+        } else if (scoreEpoch > epoch) {
+            // a writer of the epoch being closed, the snapshot of that epoch includes its change
+            previousScore = previousScore + points;
+            if (createdEpoch > epoch) {
+                createdEpoch = epoch;
+            }
+        }
+        score = score + points;
+    }
+
+    public boolean isVisibleAt(long snapshot) {
+        return createdEpoch <= snapshot && (removedEpoch == 0 || removedEpoch > snapshot);
+    }
+
+    /**
+     * Score as of the end of the given snapshot epoch, only valid while that snapshot is the active one.
+     */
+    public int scoreAt(long snapshot) {
+        var current = score;
+        return scoreEpoch <= snapshot ? current : previousScore;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
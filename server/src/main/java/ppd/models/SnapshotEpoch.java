@@ -0,0 +1,77 @@
+package ppd.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Epoch counter giving snapshot readers a consistent point-in-time view without taking writer locks.
+ * Writers tag every change with the epoch they registered in; a reader closes the current epoch E by advancing
+ * the counter, waits for the writers still registered in E to leave, and then reads the state as of E,
+ * while writers in E + 1 keep the value as of E aside before overwriting it (see {@link ScoreRecord}).
+ * Writers never wait for readers, readers only wait for writes already in flight and for each other,
+ * since a single version is kept aside. A change is settled once no running or later snapshot can see the state before
+ * it, see {@link #isSettled(long, long)}.
+ */
+public class SnapshotEpoch {
+    private final AtomicLong epoch = new AtomicLong(1);
+    private final AtomicLong[] inFlight = {new AtomicLong(0), new AtomicLong(0)};
+    private final Lock snapshotLock = new ReentrantLock();
+    // epoch of the running snapshot, MAX_VALUE when there is none
+    private volatile long activeSnapshot = Long.MAX_VALUE;
+    private volatile Thread waitingSnapshot;
+
+    public long beginWrite() {
+        while (true) {
+            var current = epoch.get();
+            inFlight[(int) (current & 1)].incrementAndGet();
+            if (epoch.get() == current) {
+                return current;
+            }
+            // a snapshot closed the epoch while registering, retry in the new one
+            endWrite(current);
+        }
+    }
+
+    public void endWrite(long writeEpoch) {
+        if (inFlight[(int) (writeEpoch & 1)].decrementAndGet() == 0) {
+            var waiting = waitingSnapshot;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+    }
+
+    /**
+     * Whether every snapshot running or still to start, for a writer registered in {@code writeEpoch}, sees the
+     * change made in {@code changeEpoch}.
+     */
+    public boolean isSettled(long changeEpoch, long writeEpoch) {
+        return changeEpoch <= writeEpoch && changeEpoch <= activeSnapshot;
+    }
+
+    /**
+     * Closes the current epoch and returns it once every write tagged with it has completed.
+     * Must be paired with {@link #endSnapshot()}.
+     */
+    public long beginSnapshot() {
+        snapshotLock.lock();
+        // only snapshots advance the epoch, it is published before the writers can register in the next one
+        var snapshot = epoch.get();
+        activeSnapshot = snapshot;
+        epoch.incrementAndGet();
+        var writers = inFlight[(int) (snapshot & 1)];
+        waitingSnapshot = Thread.currentThread();
+        while (writers.get() != 0) {
+            LockSupport.park(this);
+        }
+        waitingSnapshot = null;
+        return snapshot;
+    }
+
+    public void endSnapshot() {
+        activeSnapshot = Long.MAX_VALUE;
+        snapshotLock.unlock();
+    }
+}
@@ -0,0 +1,164 @@
+package ppd.models;
+
+import ppd.request.Request;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops retried score submission batches, with a sliding window of sequence numbers per country.
+ * A streamed batch is only marked as seen once its whole body was read, the retry of a cut stream resumes after the
+ * records it enqueued.
+ */
+public class SubmissionDeduplicator {
+    public static final int DUPLICATE = -1;
+    public static final int IN_PROGRESS = -2;
+
+    private final int window;
+    private final ConcurrentHashMap<Integer, SequenceWindow> countries = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+
+    public SubmissionDeduplicator(int window) {
+        if (window <= 0 || window % Long.SIZE != 0) {
+            throw new IllegalArgumentException("Window must be a positive multiple of " + Long.SIZE + ": " + window);
+        }
+        this.window = window;
+    }
+
+    // sequences index the window, a client numbers its batches from 0
+    public static boolean isValidSequence(Request request) {
+        return request.getSequence() == null || request.getSequence() >= 0;
+    }
+
+    public boolean accept(Request request) {
+        if (request.getSequence() == null) {
+            return true;
+        }
+        checkSequence(request);
+        var accepted = sequenceWindow(request).accept(request.getSequence());
+        if (!accepted) {
+            duplicates.increment();
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the records of the streamed batch already enqueued, {@link #DUPLICATE} or {@link #IN_PROGRESS}.
+     * Every other result must be followed by {@link #endStream}.
+     */
+    public int beginStream(Request request) {
+        if (request.getSequence() == null) {
+            return 0;
+        }
+        checkSequence(request);
+        var enqueued = sequenceWindow(request).beginStream(request.getSequence());
+        if (enqueued == DUPLICATE) {
+            duplicates.increment();
+        }
+        return enqueued;
+    }
+
+    public void endStream(Request request, int enqueued) {
+        if (request.getSequence() != null) {
+            sequenceWindow(request).endStream(request.getSequence(), enqueued, enqueued == request.getSubmissionCount());
+        }
+    }
+
+    private static void checkSequence(Request request) {
+        if (!isValidSequence(request)) {
+            throw new IllegalArgumentException("Negative sequence number: " + request.getSequence());
+        }
+    }
+
+    private SequenceWindow sequenceWindow(Request request) {
+        return countries.computeIfAbsent(request.getCountry(), country -> new SequenceWindow(window));
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    private static final class SequenceWindow {
+        private final int window;
+        private final long[] seen;
+        // every sequence below it was accepted
+        private long highWaterMark = 0;
+        private final Map<Long, Integer> partiallyEnqueued = new HashMap<>();
+        private final Set<Long> streaming = new HashSet<>();
+
+        SequenceWindow(int window) {
+            this.window = window;
+            this.seen = new long[window / Long.SIZE];
+        }
+
+        synchronized boolean accept(long sequence) {
+            if (sequence < highWaterMark) {
+                return false;
+            }
+            if (sequence >= highWaterMark + window) {
+                // the missing batches are older than the window, they can no longer be told apart from duplicates
+                slideTo(sequence - window + 1);
+            }
+            if (isSeen(sequence)) {
+                return false;
+            }
+            setSeen(sequence, true);
+            while (isSeen(highWaterMark)) {
+                setSeen(highWaterMark, false);
+                highWaterMark++;
+            }
+            return true;
+        }
+
+        synchronized int beginStream(long sequence) {
+            if (sequence < highWaterMark || (sequence < highWaterMark + window && isSeen(sequence))) {
+                return DUPLICATE;
+            }
+            if (!streaming.add(sequence)) {
+                return IN_PROGRESS;
+            }
+            return partiallyEnqueued.getOrDefault(sequence, 0);
+        }
+
+        synchronized void endStream(long sequence, int enqueued, boolean complete) {
+            streaming.remove(sequence);
+            if (complete) {
+                partiallyEnqueued.remove(sequence);
+                accept(sequence);
+            } else {
+                partiallyEnqueued.put(sequence, enqueued);
+            }
+        }
+
+        private void slideTo(long newHighWaterMark) {
+            partiallyEnqueued.keySet().removeIf(sequence -> sequence < newHighWaterMark);
+            if (newHighWaterMark - highWaterMark >= window) {
+                Arrays.fill(seen, 0L);
+            } else {
+                for (var sequence = highWaterMark; sequence < newHighWaterMark; sequence++) {
+                    setSeen(sequence, false);
+                }
+            }
+            highWaterMark = newHighWaterMark;
+        }
+
+        private boolean isSeen(long sequence) {
+            var bit = (int) (sequence % window);
+            return (seen[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        private void setSeen(long sequence, boolean value) {
+            var bit = (int) (sequence % window);
+            if (value) {
+                seen[bit >>> 6] |= 1L << bit;
+            } else {
+                seen[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+    }
+}
@@ -5,31 +5,48 @@ import ppd.response.CountryScore;
 import ppd.response.ParticipantScore;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Ranking store as a linked list with hand-over-hand locking between writers.
+ * Ranking reads do not lock nodes: they traverse a {@link SnapshotEpoch} snapshot, so they never block the writers.
+ * Fraud removals are logical (the node is tagged with its removal epoch and stays linked),
+ * so that a snapshot still in progress keeps seeing the participant it is entitled to. The writers passing by unlink
+ * the node once no snapshot can see it anymore.
+ */
 @Getter
-public class SynchronizedRankingLinkedList {
+public class SynchronizedRankingLinkedList implements RankingStore {
     private final ScoreRecord head = new ScoreRecord(-1, -1, Integer.MAX_VALUE);
     private final ScoreRecord tail = new ScoreRecord(-1, -1, Integer.MIN_VALUE);
 
     private final Set<Integer> blacklist = new HashSet<>();
     private final Lock blacklistLock = new ReentrantLock();
 
+    private final AtomicInteger size = new AtomicInteger(0);
+    private final SnapshotEpoch epochs = new SnapshotEpoch();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder digest = new LongAdder();
+
     public SynchronizedRankingLinkedList() {
         head.setNext(tail);
     }
 
+    @Override
     public void addOrUpdate(int id, int country, int points) {
         if (isBlacklisted(id)) {
             return;
         }
+        updates.increment();
 
         if (points == -1) {
             removeAndBlacklist(id);
             return;
         }
 
+        var epoch = epochs.beginWrite();
         head.lock();
         head.getNext().lock();
         var prev = head;
@@ -37,8 +54,17 @@ public class SynchronizedRankingLinkedList {
 
         try {
             while (current != tail) {
+                if (isUnlinkable(current, epoch)) {
+                    current = unlink(prev, current);
+                    continue;
+                }
                 if (current.getId() == id) {
-                    current.setScore(current.getScore() + points);
+                    // a fraud removed it since the blacklist check, the update is dropped like any later one
+                    if (current.getRemovedEpoch() == 0) {
+                        var score = current.getScore();
+                        current.addScore(points, epoch);
+                        digest.add(RankingDigest.updateDelta(id, current.getCountry(), score, score + points));
+                    }
                     return;
                 }
                 prev.unlock();
@@ -51,18 +77,24 @@ public class SynchronizedRankingLinkedList {
                 return;
             }
 
-            var newNode = new ScoreRecord(id, country, points);
+            var newNode = new ScoreRecord(id, country, points, epoch);
             newNode.setNext(current);
             prev.setNext(newNode);
+            size.incrementAndGet();
+            digest.add(RankingDigest.entryHash(id, country, points));
         } finally {
             prev.unlock();
             current.unlock();
+            epochs.endWrite(epoch);
         }
     }
 
     private void removeAndBlacklist(int id) {
         var removed = false;
+        // before the removal, a writer not finding the unlinked participant must not add it again
+        addToBlacklist(id);
 
+        var epoch = epochs.beginWrite();
         head.lock();
         head.getNext().lock();
         var prev = head;
@@ -70,9 +102,15 @@ public class SynchronizedRankingLinkedList {
 
         try {
             while (current != tail && !removed) {
+                if (isUnlinkable(current, epoch)) {
+                    current = unlink(prev, current);
+                    continue;
+                }
                 try {
-                    if (current.getId() == id) {
-                        prev.setNext(current.getNext());
+                    if (current.getId() == id && current.getRemovedEpoch() == 0) {
+                        current.setRemovedEpoch(epoch);
+                        size.decrementAndGet();
+                        digest.add(-RankingDigest.entryHash(id, current.getCountry(), current.getScore()));
                         removed = true;
                     }
                 } finally {
@@ -82,16 +120,28 @@ public class SynchronizedRankingLinkedList {
                     current.lock();
                 }
             }
-
-            if (!removed || !isBlacklisted(id)) {
-                addToBlacklist(id);
-            }
         } finally {
             prev.unlock();
             current.unlock();
+            epochs.endWrite(epoch);
         }
     }
 
+    private boolean isUnlinkable(ScoreRecord record, long writeEpoch) {
+        var removedEpoch = record.getRemovedEpoch();
+        return removedEpoch != 0 && epochs.isSettled(removedEpoch, writeEpoch);
+    }
+
+    // prev and removed are locked, returns the record now following prev, locked; a snapshot standing on the removed
+    // record still finds the rest of the list through it
+    private ScoreRecord unlink(ScoreRecord prev, ScoreRecord removed) {
+        var next = removed.getNext();
+        prev.setNext(next);
+        removed.unlock();
+        next.lock();
+        return next;
+    }
+
     private void addToBlacklist(int id) {
         blacklistLock.lock();
         try {
@@ -110,52 +160,56 @@ public class SynchronizedRankingLinkedList {
         }
     }
 
+    @Override
+    public long digest() {
+        return digest.sum();
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long updateCount() {
+        return updates.sum();
+    }
+
+    @Override
     public List<ParticipantScore> getParticipantRanking() {
-        List<ParticipantScore> list = new LinkedList<>();
+        var ranking = PackedParticipantRanking.builder(size.get());
+        forEachParticipant(ranking::add);
+        return ranking.build();
+    }
 
-        var current = head.getNext();
-        current.lock();
+    @Override
+    public void forEachParticipant(ParticipantConsumer consumer) {
+        var snapshot = epochs.beginSnapshot();
         try {
-            while (current != tail) {
-                list.add(new ParticipantScore(current.getId(), current.getCountry(), current.getScore()));
-                var next = current.getNext();
-                next.lock();
-                current.unlock();
-                current = next;
+            for (var current = head.getNext(); current != tail; current = current.getNext()) {
+                if (current.isVisibleAt(snapshot)) {
+                    consumer.accept(current.getId(), current.getCountry(), current.scoreAt(snapshot));
+                }
             }
         } finally {
-            current.unlock();
+            epochs.endSnapshot();
         }
-
-        list.sort((a, b) -> {
-            if (b.score() != a.score()) {
-                return Integer.compare(b.score(), a.score());
-            } else {
-                return Integer.compare(b.id(), a.id());
-            }
-        });
-        return list;
     }
 
+    @Override
     public List<CountryScore> getCountryRanking() {
         List<CountryScore> list = new LinkedList<>();
         Map<Integer, Integer> countryScores = new HashMap<>();
 
-        var current = head.getNext();
-        current.lock();
+        var snapshot = epochs.beginSnapshot();
         try {
-            while (current != tail) {
-                var country = current.getCountry();
-                var score = current.getScore();
-                countryScores.merge(country, score, Integer::sum);
-
-                var next = current.getNext();
-                next.lock();
-                current.unlock();
-                current = next;
+            for (var current = head.getNext(); current != tail; current = current.getNext()) {
+                if (current.isVisibleAt(snapshot)) {
+                    countryScores.merge(current.getCountry(), current.scoreAt(snapshot), Integer::sum);
+                }
             }
         } finally {
-            current.unlock();
+            epochs.endSnapshot();
         }
 
         countryScores.forEach((country, score) -> list.add(new CountryScore(country, score)));
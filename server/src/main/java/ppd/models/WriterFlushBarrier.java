@@ -0,0 +1,50 @@
+package ppd.models;
+
+/**
+ * Lets a reader that needs exact results make every combining writer publish the deltas it accumulated.
+ * The reader requests a new flush generation and waits until each writer has flushed it, or has finished.
+ * Writers poll {@link #requested()} between records and at least every flush period while idle.
+ */
+public class WriterFlushBarrier {
+    private final long[] flushed;
+    // read by the writers on every record, only written under the monitor
+    private volatile long requested = 0;
+
+    public WriterFlushBarrier(int writers) {
+        this.flushed = new long[writers];
+    }
+
+    public long requested() {
+        return requested;
+    }
+
+    /**
+     * Called by the writer once everything it accumulated before the generation was requested is published.
+     */
+    public synchronized void flushed(int writer, long generation) {
+        if (generation > flushed[writer]) {
+            flushed[writer] = generation;
+            notifyAll();
+        }
+    }
+
+    public synchronized void finished(int writer) {
+        flushed[writer] = Long.MAX_VALUE;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until every writer has published the deltas it held when called. Returns at once without writers.
+     */
+    public synchronized void flush() throws InterruptedException {
+        if (flushed.length == 0) {
+            return;
+        }
+        var generation = ++requested;
+        for (int writer = 0; writer < flushed.length; writer++) {
+            while (flushed[writer] < generation) {
+                wait();
+            }
+        }
+    }
+}
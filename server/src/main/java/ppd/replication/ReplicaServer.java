@@ -0,0 +1,130 @@
+package ppd.replication;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.models.RankingStore;
+import ppd.response.ParticipantScore;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Read replica of the ranking, applying the updates streamed by the primary {@link ppd.ContestServer}.
+ * Started before the server, it exits once the log ended and no request arrived for {@code REPLICA_LINGER_SECONDS}.
+ */
+public class ReplicaServer {
+    private final int index;
+    private final int port;
+    private final RankingStore rankingList = RankingStore.create(RANKING_STORE);
+
+    // primary clock up to which every update was applied, -1 until the primary connects
+    private volatile long syncedMillis = -1;
+    private final CompletableFuture<List<ParticipantScore>> finalRanking = new CompletableFuture<>();
+    private volatile long lastRequestNanos = System.nanoTime();
+
+    private static final Logger log = LogManager.getLogger(ReplicaServer.class);
+
+    public ReplicaServer(int index) {
+        this.index = index;
+        this.port = REPLICA_BASE_PORT + index;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            log.error("Usage: ReplicaServer <replica index in [0, {})>", REPLICAS);
+            System.exit(1);
+        }
+
+        var index = Integer.parseInt(args[0]);
+        if (index < 0) {
+            log.error("Invalid replica index: {}", index);
+            System.exit(1);
+        }
+        new ReplicaServer(index).run();
+    }
+
+    public void run() {
+        var workerThreads = new ArrayList<Thread>();
+        try (var socket = new ServerSocket(port)) {
+            // the accept loop wakes up regularly to notice the end of the linger period
+            socket.setSoTimeout(1000);
+            log.info("Replica {} started on port: {}, waiting for the primary...", index, port);
+
+            while (!isIdle()) {
+                try {
+                    var clientSocket = socket.accept();
+                    lastRequestNanos = System.nanoTime();
+                    var worker = new ReplicaWorker(clientSocket, this);
+                    workerThreads.add(worker);
+                    worker.start();
+                } catch (SocketTimeoutException e) {
+                    log.debug("Socket timeout, waiting for new connections...");
+                }
+            }
+        } catch (IOException e) {
+            log.error(e);
+        }
+
+        workerThreads.forEach(worker -> {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        });
+        log.info("Replica {} finished with {} participants.", index, rankingList.size());
+    }
+
+    private boolean isIdle() {
+        return finalRanking.isDone()
+                && System.nanoTime() - lastRequestNanos > TimeUnit.SECONDS.toNanos(REPLICA_LINGER_SECONDS);
+    }
+
+    public void applyLog(ObjectInputStream in) {
+        log.info("Primary connected to replica {}, applying its updates", index);
+        syncedMillis = System.currentTimeMillis();
+        try {
+            for (var timestamp = ReplicationStream.applyBatch(in, rankingList);
+                 timestamp != ReplicationStream.END_OF_LOG;
+                 timestamp = ReplicationStream.applyBatch(in, rankingList)) {
+                syncedMillis = timestamp;
+            }
+            finalRanking.complete(rankingList.getParticipantRanking());
+            lastRequestNanos = System.nanoTime();
+            log.info("Replication log ended, replica {} holds the final ranking, digest {}",
+                    index, Long.toHexString(rankingList.digest()));
+        } catch (IOException e) {
+            // the replica keeps answering from what it has, its staleness keeps growing
+            log.error("Replication log of replica {} interrupted: {}", index, e.getMessage());
+            finalRanking.completeExceptionally(e);
+        }
+    }
+
+    public boolean isSynchronized() {
+        return syncedMillis >= 0;
+    }
+
+    // 0 once the whole log was applied
+    public long stalenessMillis() {
+        if (finalRanking.isDone() && !finalRanking.isCompletedExceptionally()) {
+            return 0;
+        }
+        return Math.max(0, System.currentTimeMillis() - syncedMillis);
+    }
+
+    public RankingStore getRankingList() {
+        return rankingList;
+    }
+
+    public CompletableFuture<List<ParticipantScore>> finalRanking() {
+        return finalRanking;
+    }
+}
@@ -0,0 +1,101 @@
+package ppd.replication;
+
+import lombok.SneakyThrows;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.contest.ContestRegistry;
+import ppd.handlers.ResponseCompression;
+import ppd.request.Request;
+import ppd.response.Response;
+import ppd.response.ResponseType;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.concurrent.CompletionException;
+
+public class ReplicaWorker extends Thread {
+    private final Socket clientSocket;
+    private final ReplicaServer replica;
+
+    private static final Logger log = LogManager.getLogger(ReplicaWorker.class);
+
+    public ReplicaWorker(Socket clientSocket, ReplicaServer replica) {
+        this.clientSocket = clientSocket;
+        this.replica = replica;
+    }
+
+    @Override
+    public void run() {
+        try (var out = new ObjectOutputStream(clientSocket.getOutputStream());
+             var in = new ObjectInputStream(clientSocket.getInputStream())) {
+
+            var request = (Request) in.readObject();
+            handleRequest(request, in, out);
+            clientSocket.close();
+        } catch (IOException | ClassNotFoundException e) {
+            log.error(e);
+        }
+    }
+
+    private void handleRequest(Request request, ObjectInputStream in, ObjectOutputStream out) {
+        if (request.getContest() != ContestRegistry.DEFAULT_CONTEST) {
+            // the primary only streams the updates of its first contest
+            log.error("Request for unreplicated contest {}", request.getContest());
+            sendError(out, "Contest not replicated: " + request.getContest());
+            return;
+        }
+        switch (request.getType()) {
+            case REPLICATION_STREAM -> replica.applyLog(in);
+            case PARTIAL_COUNTRY_RANKING -> processCountryRanking(request, out);
+            case FINAL_PARTICIPANT_RANKING -> processFinalParticipantRanking(request, out);
+            default -> {
+                log.error("Invalid request type for replica: {}", request.getType());
+                sendError(out, "Read-only replica, unsupported request type: " + request.getType());
+            }
+        }
+    }
+
+    @SneakyThrows
+    private void sendResponse(ObjectOutputStream out, Response response) {
+        out.writeObject(response);
+        out.flush();
+    }
+
+    private void sendError(ObjectOutputStream out, String message) {
+        sendResponse(out, Response.builder()
+                .type(ResponseType.ERROR)
+                .message(message)
+                .build());
+    }
+
+    private void processCountryRanking(Request request, ObjectOutputStream out) {
+        if (!replica.isSynchronized()) {
+            sendError(out, "Replica not synchronized with the primary yet");
+            return;
+        }
+        // taken before reading, the ranking is at least as recent as the reported staleness
+        var stalenessMillis = replica.stalenessMillis();
+        var response = ResponseCompression.compressIfAccepted(request, Response.builder()
+                .type(ResponseType.SUCCESS)
+                .countryRanking(replica.getRankingList().getCountryRanking())
+                .stalenessMillis(stalenessMillis)
+                .build());
+        sendResponse(out, response);
+        log.info("Partial country ranking sent to client {}, {} ms stale", request.getCountry(), stalenessMillis);
+    }
+
+    private void processFinalParticipantRanking(Request request, ObjectOutputStream out) {
+        try {
+            var ranking = replica.finalRanking().join();
+            sendResponse(out, ResponseCompression.compressIfAccepted(request, Response.builder()
+                    .type(ResponseType.SUCCESS)
+                    .participantRanking(ranking)
+                    .build()));
+            log.info("Final participant ranking sent to client: {}", request.getCountry());
+        } catch (CompletionException e) {
+            sendError(out, "Replication log interrupted, final ranking unavailable");
+        }
+    }
+}
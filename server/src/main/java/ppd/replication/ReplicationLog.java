@@ -0,0 +1,145 @@
+package ppd.replication;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import ppd.models.ObservableRankingStore;
+import ppd.models.ScoreRecord;
+import ppd.request.Request;
+import ppd.request.RequestType;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ppd.utils.ContestConfig.*;
+
+/**
+ * Primary side of the replication, streaming the applied updates to the {@link ReplicaServer}s connected before the
+ * first one. A replica that falls {@code REPLICATION_QUEUE_CAPACITY} updates behind is disconnected.
+ */
+public class ReplicationLog implements ObservableRankingStore.Listener {
+    private final List<ReplicaLink> replicas;
+
+    private static final Logger log = LogManager.getLogger(ReplicationLog.class);
+
+    private ReplicationLog(List<ReplicaLink> replicas) {
+        this.replicas = replicas;
+    }
+
+    public static ReplicationLog connect(ObservableRankingStore store, int replicaCount) {
+        var replicas = new ArrayList<ReplicaLink>();
+        for (int index = 0; index < replicaCount; index++) {
+            var port = REPLICA_BASE_PORT + index;
+            try {
+                var link = new ReplicaLink(index, new Socket("localhost", port), store);
+                link.start();
+                replicas.add(link);
+                log.info("Streaming updates to replica {} on port {}", index, port);
+            } catch (IOException e) {
+                log.error("Replica {} unreachable on port {}, not replicating to it: {}", index, port, e.getMessage());
+            }
+        }
+        var replicationLog = new ReplicationLog(replicas);
+        store.addListener(replicationLog);
+        return replicationLog;
+    }
+
+    @Override
+    public void onUpdate(int id, int country, int points) {
+        var update = new ScoreRecord(id, country, points);
+        for (var replica : replicas) {
+            replica.offer(update);
+        }
+    }
+
+    // once no more updates are applied
+    public void close() {
+        for (var replica : replicas) {
+            replica.close();
+        }
+        for (var replica : replicas) {
+            try {
+                replica.join();
+            } catch (InterruptedException e) {
+                log.error(e);
+            }
+        }
+    }
+
+    private static class ReplicaLink extends Thread {
+        private final int index;
+        private final Socket socket;
+        private final ObservableRankingStore store;
+        private final BlockingQueue<ScoreRecord> pending = new ArrayBlockingQueue<>(REPLICATION_QUEUE_CAPACITY);
+        private volatile boolean lagging = false;
+        private volatile boolean closed = false;
+        // connected before the first update, the replica missed nothing up to then
+        private long syncedMillis = System.currentTimeMillis();
+
+        private ReplicaLink(int index, Socket socket, ObservableRankingStore store) {
+            super("replica-link-" + index);
+            this.index = index;
+            this.socket = socket;
+            this.store = store;
+        }
+
+        private void offer(ScoreRecord update) {
+            if (!lagging && !pending.offer(update)) {
+                disconnectLagging();
+            }
+        }
+
+        // several writers may find the backlog full at once
+        private synchronized void disconnectLagging() {
+            if (!lagging) {
+                lagging = true;
+                log.error("Replica {} fell {} updates behind, disconnecting it", index, REPLICATION_QUEUE_CAPACITY);
+            }
+        }
+
+        private void close() {
+            closed = true;
+        }
+
+        @Override
+        public void run() {
+            try (socket; var out = new ObjectOutputStream(socket.getOutputStream())) {
+                out.writeObject(Request.builder().type(RequestType.REPLICATION_STREAM).build());
+
+                var batch = new ArrayList<ScoreRecord>(REPLICATION_BATCH_SIZE);
+                while (!lagging) {
+                    // taken before draining: every update applied until then was offered, and is either sent in this batch
+                    // or still pending
+                    var closing = closed;
+                    var timestampMillis = store.reportedBeforeMillis();
+                    var first = pending.poll(REPLICATION_HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null && closing) {
+                        ReplicationStream.writeEnd(out);
+                        log.info("Replication log to replica {} completed", index);
+                        return;
+                    }
+                    if (first != null) {
+                        batch.add(first);
+                        pending.drainTo(batch, REPLICATION_BATCH_SIZE - 1);
+                    }
+                    // a batch leaving updates behind only vouches for what the previous one did
+                    if (pending.isEmpty()) {
+                        syncedMillis = timestampMillis;
+                    }
+                    ReplicationStream.writeBatch(out, batch, syncedMillis);
+                    batch.clear();
+                }
+            } catch (IOException e) {
+                lagging = true;
+                log.error("Replication to replica {} failed: {}", index, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ppd.replication;
+
+import ppd.models.RankingStore;
+import ppd.models.ScoreRecord;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+/**
+ * Body of a {@link ppd.request.RequestType#REPLICATION_STREAM} connection: batches of (id, country, points) ints, each
+ * preceded by its length and the primary time up to which the replica missed nothing, then an end marker.
+ */
+public class ReplicationStream {
+    public static final long END_OF_LOG = -1;
+
+    private ReplicationStream() {
+    }
+
+    public static void writeBatch(ObjectOutputStream out, List<ScoreRecord> updates, long timestampMillis)
+            throws IOException {
+        out.writeInt(updates.size());
+        out.writeLong(timestampMillis);
+        for (var update : updates) {
+            out.writeInt(update.getId());
+            out.writeInt(update.getCountry());
+            out.writeInt(update.getScore());
+        }
+        out.flush();
+    }
+
+    public static void writeEnd(ObjectOutputStream out) throws IOException {
+        out.writeInt(-1);
+        out.flush();
+    }
+
+    // returns the timestamp of the batch, or END_OF_LOG
+    public static long applyBatch(ObjectInputStream in, RankingStore store) throws IOException {
+        var size = in.readInt();
+        if (size < 0) {
+            return END_OF_LOG;
+        }
+        var timestampMillis = in.readLong();
+        for (int i = 0; i < size; i++) {
+            store.addOrUpdate(in.readInt(), in.readInt(), in.readInt());
+        }
+        return timestampMillis;
+    }
+}